@@ -12,7 +12,6 @@ import com.greendizer.api.net.StatusCodeEnum;
 @SuppressWarnings("serial")
 public class APIException extends Exception {
 
-  protected static JSONParser parser;
   private StatusCodeEnum statusCode;
   private String description;
 
@@ -23,16 +22,23 @@ public class APIException extends Exception {
    */
   public APIException(Response response) {
     this.statusCode = response.getStatusCode();
-    if (parser == null) {
-      parser = new JSONParser();
-    }
     try {
-      this.description = ((JSONObject) parser.parse(response.getContent())).get("desc").toString();
+      this.description = ((JSONObject) new JSONParser().parse(response.getContent())).get("desc").toString();
     } catch (Throwable t) {
       this.description = response.getMessage();
     }
   }
 
+  /**
+   * Creates a new {@code APIException} for a request which did not get a response from the server.
+   * @param statusCode HTTP status code standing for the failure.
+   * @param description Failure description.
+   */
+  public APIException(StatusCodeEnum statusCode, String description) {
+    this.statusCode = statusCode;
+    this.description = description;
+  }
+
   /**
    * Returns the HTTP status code.
    * @return The HTTP status code.
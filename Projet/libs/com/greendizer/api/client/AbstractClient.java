@@ -1,7 +1,21 @@
 package com.greendizer.api.client;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import android.util.Base64;
 
+import com.greendizer.api.net.CircuitBreaker;
+import com.greendizer.api.net.ConcurrencyLimiter;
+import com.greendizer.api.net.ConnectionPool;
+import com.greendizer.api.net.RateLimiter;
+import com.greendizer.api.net.RequestCoalescer;
+import com.greendizer.api.net.RetryPolicy;
 import com.greendizer.api.resource.AbstractEmail;
 import com.greendizer.api.resource.AbstractInvoice;
 import com.greendizer.api.resource.AbstractUser;
@@ -15,9 +29,24 @@ import com.greendizer.api.resource.AbstractUser;
  */
 public abstract class AbstractClient<InvoiceType extends AbstractInvoice, EmailType extends AbstractEmail<InvoiceType>, UserType extends AbstractUser<InvoiceType, EmailType>> {
   
+  private static final int defaultConcurrency = 5;
+  private static final int maxConcurrency = 64;
+  private static final int maxTimeouts = 1024;
   private final boolean usingOAuth;
   private final String secret;
   private boolean isDebug;
+  private ConnectionPool connectionPool;
+  private volatile RateLimiter rateLimiter = RateLimiter.unlimited();
+  private volatile RetryPolicy retryPolicy = new RetryPolicy();
+  private volatile CircuitBreaker circuitBreaker = new CircuitBreaker();
+  private volatile ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(defaultConcurrency, 1, maxConcurrency);
+  private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+  private ExecutorService executor;
+  private volatile ThreadFactory threadFactory;
+  private volatile boolean threadPerTask;
+  private ScheduledThreadPoolExecutor timer;
+  private boolean purging;
+  private volatile long timeout;
   protected UserType user;
   
   /**
@@ -28,6 +57,8 @@ public abstract class AbstractClient<InvoiceType extends AbstractInvoice, EmailT
   public AbstractClient(String email, String password) {
     this.usingOAuth = false;
     this.secret = new String(Base64.encode(String.format("%s:%s", email, password).getBytes(),Base64.DEFAULT));
+    this.connectionPool = new ConnectionPool();
+    this.threadFactory = new DaemonThreadFactory("greendizer-worker");
   }
   
   /**
@@ -37,6 +68,8 @@ public abstract class AbstractClient<InvoiceType extends AbstractInvoice, EmailT
   public AbstractClient(String token) {
     this.usingOAuth = true;
     this.secret = token;
+    this.connectionPool = new ConnectionPool();
+    this.threadFactory = new DaemonThreadFactory("greendizer-worker");
   }
   
   /**
@@ -78,4 +111,259 @@ public abstract class AbstractClient<InvoiceType extends AbstractInvoice, EmailT
   public boolean isDebug() {
     return isDebug;
   }
+
+  /**
+   * Returns the connection pool shared by all the requests of the client.
+   * @return The connection pool shared by all the requests of the client.
+   */
+  public ConnectionPool getConnectionPool() {
+    return connectionPool;
+  }
+
+  /**
+   * Sets the connection pool shared by all the requests of the client to the given value.
+   * @param connectionPool Connection pool value to be set.
+   */
+  public void setConnectionPool(ConnectionPool connectionPool) {
+    if (connectionPool == null) {
+      throw new NullPointerException("Connection pool should not be null");
+    }
+    this.connectionPool = connectionPool;
+  }
+
+  /**
+   * Returns the policy for retrying the requests which failed transiently.
+   * @return The policy for retrying the requests which failed transiently.
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Sets the policy for retrying the requests which failed transiently to the given value.
+   * @param retryPolicy Retry policy value to be set, {@link RetryPolicy#none()} to never retry.
+   */
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    if (retryPolicy == null) {
+      throw new NullPointerException("Retry policy should not be null");
+    }
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Returns the circuit breakers failing requests fast while an endpoint is failing.
+   * @return The circuit breakers failing requests fast while an endpoint is failing.
+   */
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Sets the circuit breakers failing requests fast while an endpoint is failing to the given value.
+   * @param circuitBreaker Circuit breaker value to be set.
+   */
+  public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+    if (circuitBreaker == null) {
+      throw new NullPointerException("Circuit breaker should not be null");
+    }
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * Returns the token bucket limiting the rate of the requests sent by the client.
+   * @return The token bucket limiting the rate of the requests sent by the client.
+   */
+  public RateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  /**
+   * Sets the token bucket limiting the rate of the requests sent by the client to the given value.
+   * @param rateLimiter Rate limiter value to be set, {@link RateLimiter#unlimited()} to remove the limit.
+   */
+  public void setRateLimiter(RateLimiter rateLimiter) {
+    if (rateLimiter == null) {
+      throw new NullPointerException("Rate limiter should not be null");
+    }
+    this.rateLimiter = rateLimiter;
+  }
+
+  /**
+   * Returns the adaptive limit of the number of requests the client has in flight.
+   * @return The adaptive limit of the number of requests the client has in flight.
+   */
+  public ConcurrencyLimiter getConcurrencyLimiter() {
+    return concurrencyLimiter;
+  }
+
+  /**
+   * Sets the adaptive limit of the number of requests the client has in flight to the given value.
+   * @param concurrencyLimiter Concurrency limiter value to be set.
+   */
+  public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+    if (concurrencyLimiter == null) {
+      throw new NullPointerException("Concurrency limiter should not be null");
+    }
+    this.concurrencyLimiter = concurrencyLimiter;
+  }
+
+  /**
+   * Returns the coalescer sharing the responses of identical requests sent at the same time by the client.
+   * @return The coalescer sharing the responses of identical requests sent at the same time by the client.
+   */
+  public RequestCoalescer getRequestCoalescer() {
+    return requestCoalescer;
+  }
+
+  /**
+   * Returns the executor running the asynchronous calls of the client.
+   * Unless set, it is created with {@link #newExecutor(int)} as large as the connection pool allows per host.
+   * @return The executor running the asynchronous calls of the client.
+   */
+  public synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = newExecutor(connectionPool.getMaxConnectionsPerHost());
+    }
+    return executor;
+  }
+
+  /**
+   * Creates an executor for operations fanning out requests, such as parallel downloads or bulk updates.
+   * The executor is either a pool of the given number of threads, or starts a thread per task in thread-per-task mode.
+   * Either way its threads come from the client thread factory.
+   * @param concurrency Number of threads of the pool, ignored in thread-per-task mode.
+   * @return A new executor, to be shut down by the caller.
+   */
+  public ExecutorService newExecutor(int concurrency) {
+    return threadPerTask ? new ThreadPerTaskExecutor(threadFactory) : Executors.newFixedThreadPool(concurrency, threadFactory);
+  }
+
+  /**
+   * Returns the factory of the threads running the requests of the client in the background.
+   * @return The factory of the threads running the requests of the client in the background.
+   */
+  public ThreadFactory getThreadFactory() {
+    return threadFactory;
+  }
+
+  /**
+   * Sets the factory of the threads running the requests of the client in the background to the given value.
+   * On a JVM supporting them, a virtual thread factory can be set along with the thread-per-task mode.
+   * The executor of the asynchronous calls is only affected if it has not been created yet.
+   * @param threadFactory Thread factory value to be set.
+   */
+  public void setThreadFactory(ThreadFactory threadFactory) {
+    if (threadFactory == null) {
+      throw new NullPointerException("Thread factory should not be null");
+    }
+    this.threadFactory = threadFactory;
+  }
+
+  /**
+   * Returns true if operations fanning out requests start a thread per task, false if they use a pool of threads.
+   * @return True if operations fanning out requests start a thread per task, false if they use a pool of threads.
+   */
+  public boolean isThreadPerTask() {
+    return threadPerTask;
+  }
+
+  /**
+   * Turns on/off the thread-per-task mode.
+   * When on, the number of simultaneous requests is only bounded by the connection pool and the blocked threads
+   * should be cheap, which is the case of virtual threads.
+   * @param threadPerTask Thread-per-task flag.
+   */
+  public void setThreadPerTask(boolean threadPerTask) {
+    this.threadPerTask = threadPerTask;
+  }
+
+  /**
+   * Sets the executor running the asynchronous calls of the client to the given value.
+   * @param executor Executor value to be set.
+   */
+  public synchronized void setExecutor(ExecutorService executor) {
+    if (executor == null) {
+      throw new NullPointerException("Executor should not be null");
+    }
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the time in milliseconds after which a request or an asynchronous call is given up, 0 if never.
+   * @return Time in milliseconds after which a request or an asynchronous call is given up, 0 if never.
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets the time in milliseconds after which a request or an asynchronous call is given up to the given value.
+   * Connections time out when connecting or reading, asynchronous calls are cancelled.
+   * @param timeout Timeout value to be set, 0 to wait forever.
+   */
+  public void setTimeout(long timeout) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout cannot be negative");
+    }
+    this.timeout = timeout;
+  }
+
+  /**
+   * Runs the given task on the executor of the client.
+   * The call is cancelled if it has not completed within the client timeout.
+   * @param <T> Result type.
+   * @param task Task to be run.
+   * @param callback Callback to be notified once completed, {@code null} if none.
+   * @return A future result of the task, which can be cancelled.
+   */
+  public <T> Future<T> submit(Callable<T> task, Callback<? super T> callback) {
+    final AsyncCall<T> call = new AsyncCall<T>(task, callback);
+    getExecutor().execute(call);
+    if (timeout > 0) {
+      call.setTimeout(getTimer().schedule(new Runnable() {
+        public void run() {
+          call.cancel(true);
+        }
+      }, timeout, TimeUnit.MILLISECONDS));
+    }
+    return call;
+  }
+
+  /**
+   * Returns the timer cancelling the timed out calls, created on first use.
+   * Cancelled timeout tasks are removed from its queue, or purged where the platform cannot remove them on cancellation.
+   * @return The timer cancelling the timed out calls.
+   */
+  private synchronized ScheduledThreadPoolExecutor getTimer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("greendizer-timeout"));
+      try {
+        // Only available from Java 7.
+        ScheduledThreadPoolExecutor.class.getMethod("setRemoveOnCancelPolicy", boolean.class).invoke(timer, true);
+      } catch (Exception e) {
+        purging = true;
+      }
+    } else if (purging && timer.getQueue().size() >= maxTimeouts) {
+      timer.purge();
+    }
+    return timer;
+  }
+
+  /**
+   * Represents a factory of named daemon threads, which do not prevent the application from exiting.
+   */
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final String name;
+
+    private DaemonThreadFactory(String name) {
+      this.name = name;
+    }
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
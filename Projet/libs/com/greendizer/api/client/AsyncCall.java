@@ -0,0 +1,69 @@
+package com.greendizer.api.client;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+
+/**
+ * Represents a pending asynchronous call to the API, notifying its callback once completed.
+ * @param <T> Result type.
+ */
+public class AsyncCall<T> extends FutureTask<T> {
+
+  private final Callback<? super T> callback;
+  private volatile Future<?> timeout;
+
+  /**
+   * Creates an asynchronous call of the given task.
+   * @param task Task to be called.
+   * @param callback Callback to be notified once completed, {@code null} if none.
+   */
+  public AsyncCall(Callable<T> task, Callback<? super T> callback) {
+    super(task);
+    this.callback = callback;
+  }
+
+  /**
+   * Sets the task cancelling the call once timed out, which is cancelled in turn once the call completes.
+   * @param timeout Timeout task to be set.
+   */
+  void setTimeout(Future<?> timeout) {
+    this.timeout = timeout;
+    if (isDone()) {
+      timeout.cancel(false);
+    }
+  }
+
+  /**
+   * Cancels the timeout task and notifies the callback of the outcome of the call.
+   */
+  @Override
+  protected void done() {
+    Future<?> timeout = this.timeout;
+    if (timeout != null) {
+      timeout.cancel(false);
+    }
+    if (callback == null) {
+      return;
+    }
+    if (isCancelled()) {
+      callback.onFailure(new CancellationException("Call cancelled"));
+      return;
+    }
+    T result;
+    try {
+      result = get();
+    } catch (ExecutionException e) {
+      callback.onFailure(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      callback.onFailure(e);
+      return;
+    }
+    callback.onSuccess(result);
+  }
+}
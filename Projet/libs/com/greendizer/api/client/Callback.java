@@ -0,0 +1,22 @@
+package com.greendizer.api.client;
+
+
+/**
+ * Represents a callback notified once an asynchronous call completes.
+ * Callbacks are run on the thread which completed the call.
+ * @param <T> Result type.
+ */
+public interface Callback<T> {
+
+  /**
+   * Called once the call has successfully completed.
+   * @param result Result of the call.
+   */
+  void onSuccess(T result);
+
+  /**
+   * Called once the call has failed, been cancelled or timed out.
+   * @param e Cause of the failure, a {@link java.util.concurrent.CancellationException} if cancelled or timed out.
+   */
+  void onFailure(Exception e);
+}
@@ -0,0 +1,83 @@
+package com.greendizer.api.client;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Represents an executor starting a new thread for each task, meant to be used with lightweight threads.
+ */
+class ThreadPerTaskExecutor extends AbstractExecutorService {
+
+  private final ThreadFactory threadFactory;
+  private final HashSet<Thread> threads;
+  private boolean shutdown;
+
+  /**
+   * Creates an executor starting threads from the given factory.
+   * @param threadFactory Factory of the threads to run the tasks on.
+   */
+  ThreadPerTaskExecutor(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+    this.threads = new HashSet<Thread>();
+  }
+
+  public synchronized void execute(final Runnable task) {
+    if (shutdown) {
+      throw new RejectedExecutionException("Executor has been shut down");
+    }
+    Thread thread = threadFactory.newThread(new Runnable() {
+      public void run() {
+        try {
+          task.run();
+        } finally {
+          terminated(Thread.currentThread());
+        }
+      }
+    });
+    threads.add(thread);
+    thread.start();
+  }
+
+  public synchronized void shutdown() {
+    shutdown = true;
+  }
+
+  public synchronized List<Runnable> shutdownNow() {
+    shutdown = true;
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+    return Collections.emptyList();
+  }
+
+  public synchronized boolean isShutdown() {
+    return shutdown;
+  }
+
+  public synchronized boolean isTerminated() {
+    return shutdown && threads.isEmpty();
+  }
+
+  public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!isTerminated()) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return true;
+  }
+
+  private synchronized void terminated(Thread thread) {
+    threads.remove(thread);
+    notifyAll();
+  }
+}
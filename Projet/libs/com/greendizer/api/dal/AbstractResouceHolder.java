@@ -1,6 +1,7 @@
 package com.greendizer.api.dal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -12,17 +13,20 @@ import com.greendizer.api.resource.AbstractResource;
 /**
  * Represents the base class for resource holding management.
  * It handles a dictionary of resources referenced by their ids to be manipulated as a list.
+ * Resources are also indexed by position, so that positional access does not walk the dictionary.
  * @param <Type> A resource type.
  */
 public abstract class AbstractResouceHolder<Type extends AbstractResource> implements List<Type> {
 
   protected LinkedHashMap<String, Type> resources;
+  private final ResourceMap<Type> indexed;
 
   /**
    * Creates a new resource holder.
    */
   public AbstractResouceHolder() {
-    this.resources = new LinkedHashMap<String, Type>();
+    this.indexed = new ResourceMap<Type>();
+    this.resources = indexed;
   }
 
   /**
@@ -67,7 +71,7 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public boolean contains(Object o) {
-    return resources.containsValue(o);
+    return indexed.indexOf(o) != -1;
   }
 
   /**
@@ -78,7 +82,7 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
   @Override
   public boolean containsAll(java.util.Collection<?> c) {
     for (Object resource : c) {
-      if (!resources.containsValue(resource)) {
+      if (indexed.indexOf(resource) == -1) {
         return false;
       }
     }
@@ -92,16 +96,15 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public Type get(int index) {
-    if (isEmpty()) {
-      throw new RuntimeException("the resource holder is empty.");
-    }
-    int i = 0;
-    for (String id : resources.keySet()) {
-      if (i++ == index) {
-        return resources.get(id);
+    synchronized (resources) {
+      if (resources.isEmpty()) {
+        throw new RuntimeException("the resource holder is empty.");
+      }
+      if (index < 0 || index >= resources.size()) {
+        return null;
       }
+      return indexed.get(index);
     }
-    return null;
   }
 
   /**
@@ -127,13 +130,7 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public int indexOf(Object o) {
-    int i = 0;
-    for (String id : resources.keySet()) {
-      if (o.equals(resources.get(id))) {
-        return i++;
-      }
-    }
-    return -1;
+    return indexed.indexOf(o);
   }
 
   /**
@@ -153,7 +150,7 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public Iterator<Type> iterator() {
-    return resources.values().iterator();
+    return indexed.list().iterator();
   }
 
   /**
@@ -164,17 +161,8 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public List<Type> subList(int fromIndex, int toIndex) {
-    List<Type> list = new ArrayList<Type>();
-    int i = 0;
-    for (String id : resources.keySet()) {
-      if (i >= fromIndex) {
-        list.add(resources.get(id));
-      }
-      if (++i == toIndex) {
-        break;
-      }
-    }
-    return list;
+    List<Type> list = indexed.list();
+    return new ArrayList<Type>(list.subList(Math.max(0, fromIndex), Math.min(list.size(), toIndex)));
   }
 
   /**
@@ -183,7 +171,7 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public Object[] toArray() {
-    return resources.values().toArray();
+    return indexed.list().toArray();
   }
 
   /**
@@ -193,23 +181,26 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
    */
   @Override
   public <T> T[] toArray(T[] array) {
-    return resources.values().toArray(array);
+    return indexed.list().toArray(array);
   }
 
   /**
-   * Defined in {@code java.util.List} but not supported in this implementation.
+   * Returns a read-only list iterator over the resources in the resource holder in proper sequence.
+   * @return Read-only list iterator over the resources in the resource holder in proper sequence.
    */
   @Override
   public ListIterator<Type> listIterator() {
-    throw new UnsupportedOperationException();
+    return listIterator(0);
   }
 
   /**
-   * Defined in {@code java.util.List} but not supported in this implementation.
+   * Returns a read-only list iterator over the resources in the resource holder in proper sequence, starting at the given position.
+   * @param index Index of the first resource to be returned by the iterator.
+   * @return Read-only list iterator over the resources in the resource holder in proper sequence, starting at the given position.
    */
   @Override
   public ListIterator<Type> listIterator(int index) {
-    throw new UnsupportedOperationException();
+    return indexed.list().listIterator(index);
   }
 
   /**
@@ -284,7 +275,13 @@ public abstract class AbstractResouceHolder<Type extends AbstractResource> imple
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Returns a read-only snapshot of the resources referenced by their ids.
+   * @return A read-only snapshot of the resources referenced by their ids.
+   */
   public Map<String, Type> getResources() {
-    return resources;
+    synchronized (resources) {
+      return Collections.unmodifiableMap(new LinkedHashMap<String, Type>(resources));
+    }
   }
 }
@@ -0,0 +1,67 @@
+package com.greendizer.api.dal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.greendizer.api.resource.AbstractResource;
+
+
+/**
+ * Represents the outcome of a bulk update, resource by resource.
+ * @param <Type> A resource type.
+ */
+public class BulkResult<Type extends AbstractResource> {
+
+  private final List<Type> succeeded;
+  private final Map<Type, Exception> failed;
+
+  /**
+   * Creates an empty bulk update outcome.
+   */
+  BulkResult() {
+    this.succeeded = new ArrayList<Type>();
+    this.failed = new LinkedHashMap<Type, Exception>();
+  }
+
+  synchronized void addSuccess(Type resource) {
+    succeeded.add(resource);
+  }
+
+  synchronized void addFailure(Type resource, Exception e) {
+    failed.put(resource, e);
+  }
+
+  /**
+   * Returns the resources which have successfully been updated.
+   * @return The resources which have successfully been updated.
+   */
+  public synchronized List<Type> getSucceeded() {
+    return Collections.unmodifiableList(new ArrayList<Type>(succeeded));
+  }
+
+  /**
+   * Returns the resources which could not be updated along with the cause of their failure.
+   * @return The resources which could not be updated along with the cause of their failure.
+   */
+  public synchronized Map<Type, Exception> getFailed() {
+    return Collections.unmodifiableMap(new LinkedHashMap<Type, Exception>(failed));
+  }
+
+  /**
+   * Returns true if all the resources have successfully been updated, false otherwise.
+   * @return True if all the resources have successfully been updated, false otherwise.
+   */
+  public synchronized boolean isSuccessful() {
+    return failed.isEmpty();
+  }
+
+  /**
+   * Returns a string representation of the outcome.
+   */
+  public synchronized String toString() {
+    return String.format("%d succeeded, %d failed", succeeded.size(), failed.size());
+  }
+}
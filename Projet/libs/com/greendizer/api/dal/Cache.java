@@ -0,0 +1,262 @@
+package com.greendizer.api.dal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Represents a cache of values referenced by string keys, evicting them according to a {@link CachePolicy}.
+ * The cache keeps track of its hits, misses and evictions.
+ * @param <V> Cached values type.
+ */
+public class Cache<V> {
+
+  private static final int sweepInterval = 256;
+  private final CachePolicy policy;
+  private final LinkedHashMap<String, Entry<V>> entries;
+  private final List<EvictionListener<V>> listeners;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private int putsSinceSweep;
+
+  /**
+   * Creates an empty cache with the given policy.
+   * @param policy Eviction policy.
+   */
+  public Cache(CachePolicy policy) {
+    if (policy == null) {
+      throw new NullPointerException("Cache policy should not be null");
+    }
+    this.policy = policy;
+    this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true);
+    this.listeners = new CopyOnWriteArrayList<EvictionListener<V>>();
+  }
+
+  /**
+   * Returns the value cached with the given key, {@code null} if not found, expired or collected.
+   * @param key Key of the value to be retrieved.
+   * @return Value cached with the given key, {@code null} if not found, expired or collected.
+   */
+  public V get(String key) {
+    List<Eviction<V>> evicted = new ArrayList<Eviction<V>>(1);
+    V value;
+    synchronized (this) {
+      Entry<V> entry = entries.get(key);
+      value = entry == null ? null : entry.get();
+      if (entry != null && (value == null || isExpired(entry))) {
+        entries.remove(key);
+        evicted.add(new Eviction<V>(key, value));
+        value = null;
+      }
+      if (value == null) {
+        misses++;
+      } else {
+        hits++;
+      }
+    }
+    notify(evicted);
+    return value;
+  }
+
+  /**
+   * Caches the given value with the given key, evicting the values exceeding the policy limits.
+   * @param key Key of the value to be cached.
+   * @param value Value to be cached.
+   */
+  public void put(String key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Cached value should not be null");
+    }
+    List<Eviction<V>> evicted = new ArrayList<Eviction<V>>(1);
+    synchronized (this) {
+      entries.put(key, new Entry<V>(value, policy.getReferenceType()));
+      boolean sweep = ++putsSinceSweep >= sweepInterval;
+      if (sweep) {
+        putsSinceSweep = 0;
+      }
+      purge(evicted, sweep);
+    }
+    notify(evicted);
+  }
+
+  /**
+   * Removes the value cached with the given key, without notifying the eviction listeners.
+   * @param key Key of the value to be removed.
+   * @return The removed value, {@code null} if not found.
+   */
+  public synchronized V remove(String key) {
+    Entry<V> entry = entries.remove(key);
+    return entry == null ? null : entry.get();
+  }
+
+  /**
+   * Removes all the cached values, without notifying the eviction listeners.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Evicts the expired and collected values.
+   */
+  public void cleanUp() {
+    List<Eviction<V>> evicted = new ArrayList<Eviction<V>>();
+    synchronized (this) {
+      purge(evicted, true);
+    }
+    notify(evicted);
+  }
+
+  /**
+   * Returns the number of cached values, including the ones not yet noticed as expired or collected.
+   * @return Number of cached values.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the cache policy.
+   * @return The cache policy.
+   */
+  public CachePolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Returns the number of lookups which found a value.
+   * @return Number of lookups which found a value.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups which did not find a value.
+   * @return Number of lookups which did not find a value.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of values evicted so far.
+   * @return Number of values evicted so far.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Registers a listener to be notified of every eviction.
+   * @param listener Listener to be registered.
+   */
+  public void addEvictionListener(EvictionListener<V> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Unregisters the given eviction listener.
+   * @param listener Listener to be unregistered.
+   */
+  public void removeEvictionListener(EvictionListener<V> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Removes the least recently used entries beyond the maximum size and, when sweeping, the expired and collected ones.
+   * Expired and collected entries are otherwise noticed lazily when looked up.
+   * @param evicted List to add the evicted entries to.
+   * @param sweep True to look for expired and collected entries in the whole cache, false otherwise.
+   */
+  private void purge(List<Eviction<V>> evicted, boolean sweep) {
+    Iterator<Map.Entry<String, Entry<V>>> iterator = entries.entrySet().iterator();
+    int excess = policy.getMaxSize() == 0 ? 0 : entries.size() - policy.getMaxSize();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Entry<V>> entry = iterator.next();
+      V value = entry.getValue().get();
+      if (excess > 0 || sweep && (value == null || isExpired(entry.getValue()))) {
+        iterator.remove();
+        evicted.add(new Eviction<V>(entry.getKey(), value));
+        excess--;
+      } else if (!sweep) {
+        break;
+      }
+    }
+  }
+
+  private boolean isExpired(Entry<V> entry) {
+    return policy.getTimeToLive() != 0 && System.currentTimeMillis() - entry.created > policy.getTimeToLive();
+  }
+
+  private void notify(List<Eviction<V>> evicted) {
+    if (evicted.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      evictions += evicted.size();
+    }
+    for (Eviction<V> eviction : evicted) {
+      for (EvictionListener<V> listener : listeners) {
+        listener.onEviction(eviction.key, eviction.value);
+      }
+    }
+  }
+
+  /**
+   * Represents a listener notified when the cache evicts a value.
+   * @param <V> Cached values type.
+   */
+  public interface EvictionListener<V> {
+
+    /**
+     * Called once the value cached with the given key has been evicted.
+     * @param key Key of the evicted value.
+     * @param value Evicted value, {@code null} if it has been collected by the garbage collector.
+     */
+    void onEviction(String key, V value);
+  }
+
+  /**
+   * Represents a cached value along with its time of creation.
+   */
+  private static class Entry<V> {
+
+    private final V value;
+    private final Reference<V> reference;
+    private final long created;
+
+    private Entry(V value, ReferenceTypeEnum referenceType) {
+      this.value = referenceType == ReferenceTypeEnum.STRONG ? value : null;
+      this.reference = referenceType == ReferenceTypeEnum.SOFT ? new SoftReference<V>(value)
+        : referenceType == ReferenceTypeEnum.WEAK ? new WeakReference<V>(value) : null;
+      this.created = System.currentTimeMillis();
+    }
+
+    private V get() {
+      return reference == null ? value : reference.get();
+    }
+  }
+
+  /**
+   * Represents an eviction to be notified outside of the cache lock.
+   */
+  private static class Eviction<V> {
+
+    private final String key;
+    private final V value;
+
+    private Eviction(String key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
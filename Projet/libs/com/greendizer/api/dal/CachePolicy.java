@@ -0,0 +1,103 @@
+package com.greendizer.api.dal;
+
+
+/**
+ * Represents the eviction policy of a cache: maximum size, time to live and reference type.
+ */
+public class CachePolicy {
+
+  private final int maxSize;
+  private final long timeToLive;
+  private final ReferenceTypeEnum referenceType;
+
+  /**
+   * Returns a policy which never evicts anything.
+   * @return A policy which never evicts anything.
+   */
+  public static CachePolicy unbounded() {
+    return new CachePolicy(0, 0, ReferenceTypeEnum.STRONG);
+  }
+
+  /**
+   * Returns a policy evicting the least recently used values beyond the given size.
+   * @param maxSize Maximum number of values held.
+   * @return A policy evicting the least recently used values beyond the given size.
+   */
+  public static CachePolicy lru(int maxSize) {
+    return new CachePolicy(maxSize, 0, ReferenceTypeEnum.STRONG);
+  }
+
+  /**
+   * Returns a policy evicting the values older than the given time to live.
+   * @param timeToLive Time to live in milliseconds.
+   * @return A policy evicting the values older than the given time to live.
+   */
+  public static CachePolicy ttl(long timeToLive) {
+    return new CachePolicy(0, timeToLive, ReferenceTypeEnum.STRONG);
+  }
+
+  /**
+   * Returns a policy holding the values with soft references.
+   * @return A policy holding the values with soft references.
+   */
+  public static CachePolicy soft() {
+    return new CachePolicy(0, 0, ReferenceTypeEnum.SOFT);
+  }
+
+  /**
+   * Returns a policy holding the values with weak references.
+   * @return A policy holding the values with weak references.
+   */
+  public static CachePolicy weak() {
+    return new CachePolicy(0, 0, ReferenceTypeEnum.WEAK);
+  }
+
+  /**
+   * Creates a cache policy.
+   * @param maxSize Maximum number of values held, 0 for no limit.
+   * @param timeToLive Time to live of the values in milliseconds, 0 for no limit.
+   * @param referenceType The way values are held.
+   */
+  public CachePolicy(int maxSize, long timeToLive, ReferenceTypeEnum referenceType) {
+    if (maxSize < 0 || timeToLive < 0) {
+      throw new IllegalArgumentException("Cache limits cannot be negative");
+    }
+    if (referenceType == null) {
+      throw new NullPointerException("Reference type should not be null");
+    }
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    this.referenceType = referenceType;
+  }
+
+  /**
+   * Returns the maximum number of values held, 0 for no limit.
+   * @return Maximum number of values held, 0 for no limit.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the time to live of the values in milliseconds, 0 for no limit.
+   * @return Time to live of the values in milliseconds, 0 for no limit.
+   */
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Returns the way values are held.
+   * @return The way values are held.
+   */
+  public ReferenceTypeEnum getReferenceType() {
+    return referenceType;
+  }
+
+  /**
+   * Returns a string representation of the policy.
+   */
+  public String toString() {
+    return String.format("max size: %d, time to live: %d, references: %s", maxSize, timeToLive, referenceType);
+  }
+}
@@ -1,16 +1,31 @@
 package com.greendizer.api.dal;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import android.util.Log;
 
 import com.greendizer.api.client.APIException;
+import com.greendizer.api.client.Callback;
 import com.greendizer.api.net.ContentRange;
 import com.greendizer.api.net.ETag;
 import com.greendizer.api.net.HTTPMethodEnum;
@@ -27,12 +42,17 @@ import com.greendizer.api.resource.AbstractResource;
  */
 public class Collection<Type extends AbstractResource> extends AbstractResouceHolder<Type> {
 
-  private static final int maxLength = 200;
-  protected static JSONParser parser;
+  static final int maxLength = 200;
+  private static final int maxRestarts = 3;
+  private static final int maxCachedPages = 16;
   private final EntryPoint<Type> entryPoint;
   private final String uri;
   private ETag etag;
   private ContentRange contentRange;
+  private final LinkedHashMap<String, Page<Type>> cache;
+  private final ReentrantLock lock;
+  private int cacheHits;
+  private int cacheMisses;
 
   /**
    * Creates a new collection with its base entry point and URI.
@@ -40,12 +60,16 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
    * @param uri Collection base URI.
    */
   public Collection(EntryPoint<Type> entryPoint, String uri) {
-    if (parser == null) {
-      parser = new JSONParser();
-    }
     this.entryPoint = entryPoint;
     this.uri = uri;
     this.etag = new ETag(null, new Date(0));
+    this.lock = new ReentrantLock();
+    this.cache = new LinkedHashMap<String, Page<Type>>(maxCachedPages, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Page<Type>> eldest) {
+        return size() > maxCachedPages;
+      }
+    };
   }
 
   /**
@@ -63,6 +87,7 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
 
   /**
    * Performs an HTTP request to the collection remote peer.
+   * A page which has already been downloaded is revalidated with its ETag and reused as is if the server answers it has not been modified.
    * @param method HTTP verb of the request.
    * @param first Offset of the first resource to retrieve.
    * @param count Number of resources to retrieve.
@@ -71,58 +96,135 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
    * @throws APIException If an illegal HTTP response code has been returned.
    */
   private void performRequest(HTTPMethodEnum method, int first, int count) throws IOException, ParseException, APIException {
-    Request request = new Request(entryPoint.getClient(), method, uri);
-    if (count > 0) {
-      request.setRange(new Range("resources", first, count));
-      request.setIfRange(etag);
-    } else {
-      request.setIfModifiedSince(etag.getLastModified());
-    }
-    Response response = null;
+    lock.lock();
     try {
-      response = request.getResponse();
-    } catch (APIException e) {
-      if (e.getStatusCode() != StatusCodeEnum.REQUESTED_RANGE_NOT_SATISFIABLE) {
-        throw e;
+      Request request = new Request(entryPoint.getClient(), method, uri);
+      String key = count > 0 ? String.format("%d-%d", first, count) : "";
+      Page<Type> cached = method == HTTPMethodEnum.GET ? cache.get(key) : null;
+      if (count > 0) {
+        request.setRange(new Range("resources", first, count));
+        request.setIfRange(etag);
+      } else {
+        request.setIfModifiedSince(etag.getLastModified());
       }
-    }
-    switch (response.getStatusCode()) {
-      case OK:
-      case PARTIAL_CONTENT:
-        handlePartialResponse(response);
-        break;
-      case NO_CONTENT:
-        handleNoContentResponse(response);
-        break;
-      case NOT_MODIFIED:
-        handleNotModifiedResponse(response);
-        break;
-      case REQUESTED_RANGE_NOT_SATISFIABLE:
-        break;
-      default:
-        throw new APIException(response);
+      if (cached != null && cached.etag != null) {
+        request.setIfNoneMatch(Collections.singletonList(cached.etag));
+      }
+      request.setStreaming(method == HTTPMethodEnum.GET);
+      Response response = null;
+      try {
+        response = request.getResponse();
+      } catch (APIException e) {
+        if (e.getStatusCode() != StatusCodeEnum.REQUESTED_RANGE_NOT_SATISFIABLE) {
+          throw e;
+        }
+      }
+      try {
+        switch (response.getStatusCode()) {
+          case OK:
+          case PARTIAL_CONTENT:
+            handlePartialResponse(response);
+            if (method == HTTPMethodEnum.GET) {
+              cacheMisses++;
+              cache.put(key, snapshot());
+            }
+            break;
+          case NO_CONTENT:
+            handleNoContentResponse(response);
+            cache.remove(key);
+            break;
+          case NOT_MODIFIED:
+            handleNotModifiedResponse(response, cached);
+            break;
+          case REQUESTED_RANGE_NOT_SATISFIABLE:
+            break;
+          default:
+            throw new APIException(response);
+        }
+      } finally {
+        response.close();
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
   /**
    * Handles an HTTP response with partial content.
    * If some resources have been retrieved, then their local peers will be created and put into the collection.
+   * The response body is decoded in a single pass, each array element being handed to its resource as soon as it is parsed.
    * @param response HTTP response.
+   * @throws IOException If the response body cannot be read.
    * @throws ParseException If the HTTP response data is malformed.
    */
-  private void handlePartialResponse(Response response) throws ParseException {
+  private void handlePartialResponse(Response response) throws IOException, ParseException {
     etag = response.getEtag();
     contentRange = response.getContentRange();
     if (response.getRequest().getMethod() == HTTPMethodEnum.HEAD) {
       return;
     }
-    resources.clear();
-    JSONArray array = (JSONArray) parser.parse(response.getContent());
-    for (Object object : array) {
-      JSONObject map = (JSONObject) object;
-      Type resource = entryPoint.createResource(null);
-      resource.refresh(ETag.parse((String) map.get("etag")), map.toJSONString());
-      resources.put(resource.getId().toString(), resource);
+    LinkedHashMap<String, Type> decoded = new LinkedHashMap<String, Type>();
+    decode(response, decoded);
+    synchronized (resources) {
+      resources.clear();
+      resources.putAll(decoded);
+    }
+  }
+
+  /**
+   * Decodes the resources of a collection page response and puts them into the given map.
+   * @param response HTTP response.
+   * @param target Map to put the decoded resources into.
+   * @throws IOException If the response body cannot be read.
+   * @throws ParseException If the HTTP response data is malformed.
+   */
+  private void decode(Response response, Map<String, Type> target) throws IOException, ParseException {
+    Reader reader = response.getReader();
+    try {
+      new JSONParser().parse(reader, new PageHandler(target));
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Fetches a page of resources without modifying the resources held by the collection.
+   * @param first Offset of the first resource to retrieve.
+   * @param count Number of resources to retrieve.
+   * @param ifRange ETag the collection must still match, {@code null} to accept any version.
+   * @return The fetched page.
+   * @throws IOException If a connection error occurred.
+   * @throws ParseException If the HTTP response data is malformed.
+   * @throws APIException If an illegal HTTP response code has been returned.
+   */
+  Page<Type> fetchPage(int first, int count, ETag ifRange) throws IOException, ParseException, APIException {
+    Request request = new Request(entryPoint.getClient(), HTTPMethodEnum.GET, uri);
+    request.setRange(new Range("resources", first, count));
+    if (ifRange != null) {
+      request.setIfRange(ifRange);
+    }
+    request.setStreaming(true);
+    Response response = request.getResponse();
+    try {
+      Page<Type> page = new Page<Type>(response.getEtag(), response.getContentRange());
+      switch (response.getStatusCode()) {
+        case OK:
+        case PARTIAL_CONTENT:
+          if (ifRange != null && !ifRange.toString().equals(String.valueOf(response.getEtag()))) {
+            page.changed = true;
+          } else {
+            decode(response, page.resources);
+          }
+          break;
+        case NO_CONTENT:
+        case REQUESTED_RANGE_NOT_SATISFIABLE:
+          break;
+        default:
+          throw new APIException(response);
+      }
+      return page;
+    } finally {
+      response.close();
     }
   }
 
@@ -138,10 +240,56 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
 
   /**
    * Handles an HTTP not-modified-response.
+   * The resources of the cached page, if any, are restored without downloading nor parsing anything.
    * @param response HTTP response.
+   * @param cached Cached page which has been revalidated, {@code null} if the current resources have.
+   */
+  private void handleNotModifiedResponse(Response response, Page<Type> cached) {
+    cacheHits++;
+    if (cached == null) {
+      return;
+    }
+    etag = cached.etag;
+    contentRange = cached.contentRange;
+    synchronized (resources) {
+      resources.clear();
+      resources.putAll(cached.resources);
+    }
+  }
+
+  /**
+   * Returns a copy of the current state of the collection to be cached.
+   * @return A copy of the current state of the collection.
+   */
+  private Page<Type> snapshot() {
+    Page<Type> page = new Page<Type>(etag, contentRange);
+    synchronized (resources) {
+      page.resources.putAll(resources);
+    }
+    return page;
+  }
+
+  /**
+   * Returns the number of requests answered with a not-modified response.
+   * @return Number of requests answered with a not-modified response.
+   */
+  public int getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * Returns the number of requests which had to download the collection resources.
+   * @return Number of requests which had to download the collection resources.
+   */
+  public int getCacheMisses() {
+    return cacheMisses;
+  }
+
+  /**
+   * Discards all the cached pages of the collection.
    */
-  private void handleNotModifiedResponse(Response response) {
-    throw new UnsupportedOperationException("Not implemented");
+  public void clearCache() {
+    cache.clear();
   }
 
   /**
@@ -155,6 +303,102 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
     }
   }
 
+  /**
+   * Downloads all the resources of the collection on the executor of the client.
+   * @param callback Callback to be notified once populated, {@code null} if none.
+   * @return A future of the populated collection, which can be cancelled.
+   */
+  public Future<Collection<Type>> populateAsync(Callback<? super Collection<Type>> callback) {
+    return entryPoint.getClient().submit(new Callable<Collection<Type>>() {
+      public Collection<Type> call() {
+        populate();
+        return Collection.this;
+      }
+    }, callback);
+  }
+
+  /**
+   * Downloads all the resources of the collection, fetching up to the given number of pages at the same time.
+   * Every page is checked against the collection ETag and the download restarts if the collection changes in the meantime.
+   * @param concurrency Maximum number of pages fetched at the same time.
+   */
+  public void populateParallel(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive");
+    }
+    lock.lock();
+    try {
+      ExecutorService executor = entryPoint.getClient().newExecutor(concurrency);
+      try {
+        for (int attempt = 0; attempt <= maxRestarts; attempt++) {
+          etag = new ETag(null, new Date(0));
+          performRequest(HTTPMethodEnum.HEAD, 0, maxLength);
+          if (contentRange == null || contentRange.getTotal() == 0) {
+            resources.clear();
+            return;
+          }
+          LinkedHashMap<String, Type> merged = fetchPages(executor, contentRange.getTotal(), etag);
+          if (merged != null) {
+            synchronized (resources) {
+              resources.clear();
+              resources.putAll(merged);
+            }
+            return;
+          }
+        }
+        throw new ConcurrentModificationException("The collection keeps changing while being populated");
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new RuntimeException("Cannot populate collection", e);
+      } finally {
+        executor.shutdownNow();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Fetches all the pages of the given collection version on the given executor and merges them in server order.
+   * @param executor Executor to fetch the pages on.
+   * @param total Total number of resources in the collection.
+   * @param version ETag of the collection version to fetch.
+   * @return The resources of the collection in server order, {@code null} if the collection has changed.
+   * @throws Exception If a page cannot be fetched.
+   */
+  private LinkedHashMap<String, Type> fetchPages(ExecutorService executor, int total, final ETag version) throws Exception {
+    List<Future<Page<Type>>> futures = new ArrayList<Future<Page<Type>>>();
+    for (int first = 0; first < total; first += maxLength) {
+      final int offset = first;
+      futures.add(executor.submit(new Callable<Page<Type>>() {
+        public Page<Type> call() throws Exception {
+          return fetchPage(offset, maxLength, version);
+        }
+      }));
+    }
+    LinkedHashMap<String, Type> merged = new LinkedHashMap<String, Type>();
+    try {
+      for (Future<Page<Type>> future : futures) {
+        Page<Type> page;
+        try {
+          page = future.get();
+        } catch (ExecutionException e) {
+          throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        if (page.changed) {
+          return null;
+        }
+        merged.putAll(page.resources);
+      }
+    } finally {
+      for (Future<Page<Type>> future : futures) {
+        future.cancel(false);
+      }
+    }
+    return merged;
+  }
+
   /**
    * Downloads a specific range of resources in the collection.
    * @param start An integer representing the index of the first resource to retrieve.
@@ -173,8 +417,13 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
    * @return Date/time of last modification
    */
   public Date getLastModified() {
-    refreshMetaData();
-    return etag.getLastModified();
+    lock.lock();
+    try {
+      refreshMetaData();
+      return etag.getLastModified();
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -199,7 +448,139 @@ public class Collection<Type extends AbstractResource> extends AbstractResouceHo
    */
   @Override
   public int size() {
-    refreshMetaData();
-    return contentRange == null ? resources.size() : contentRange.getTotal();
+    lock.lock();
+    try {
+      refreshMetaData();
+      return contentRange == null ? resources.size() : contentRange.getTotal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Applies the given modification to all the resources of the collection and saves them.
+   * The collection is read as a whole before being modified, since the modification may change
+   * the resources matching its search pattern.
+   * @param delta Modification to be applied.
+   * @param concurrency Maximum number of simultaneous requests.
+   * @return Outcome of the update, resource by resource.
+   * @see EntryPoint#update(Iterable, Delta, int)
+   */
+  public BulkResult<Type> update(Delta<? super Type> delta, int concurrency) {
+    List<Type> snapshot = new ArrayList<Type>();
+    for (Type resource : scan()) {
+      snapshot.add(resource);
+    }
+    return entryPoint.update(snapshot, delta, concurrency);
+  }
+
+  /**
+   * Returns a lazy scanner over all the resources of the collection, fetching pages on demand.
+   * @return A lazy scanner over all the resources of the collection.
+   */
+  public CollectionScanner<Type> scan() {
+    return new CollectionScanner<Type>(this, maxLength);
+  }
+
+  /**
+   * Represents a page of resources fetched from the server.
+   * @param <Type> A resource type.
+   */
+  static class Page<Type> {
+
+    final ETag etag;
+    final ContentRange contentRange;
+    final LinkedHashMap<String, Type> resources;
+    boolean changed;
+
+    private Page(ETag etag, ContentRange contentRange) {
+      this.etag = etag;
+      this.contentRange = contentRange;
+      this.resources = new LinkedHashMap<String, Type>();
+    }
+  }
+
+  /**
+   * Represents a streaming decoder of a collection page.
+   * The elements of the page array are built one at a time, turned into resources and put into the target map.
+   */
+  private class PageHandler implements ContentHandler {
+
+    private final Map<String, Type> target;
+    private final LinkedList<Object> containers = new LinkedList<Object>();
+    private final LinkedList<String> keys = new LinkedList<String>();
+    private int depth;
+
+    private PageHandler(Map<String, Type> target) {
+      this.target = target;
+    }
+
+    public void startJSON() {
+      containers.clear();
+      keys.clear();
+      depth = 0;
+    }
+
+    public void endJSON() {
+    }
+
+    public boolean startArray() {
+      if (depth++ > 0) {
+        containers.addFirst(new JSONArray());
+      }
+      return true;
+    }
+
+    public boolean endArray() {
+      if (--depth > 0) {
+        append(containers.removeFirst());
+      }
+      return true;
+    }
+
+    public boolean startObject() throws ParseException {
+      if (depth++ == 0) {
+        throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+      }
+      containers.addFirst(new JSONObject());
+      return true;
+    }
+
+    public boolean endObject() {
+      depth--;
+      append(containers.removeFirst());
+      return true;
+    }
+
+    public boolean startObjectEntry(String key) {
+      keys.addFirst(key);
+      return true;
+    }
+
+    public boolean endObjectEntry() {
+      keys.removeFirst();
+      return true;
+    }
+
+    public boolean primitive(Object value) {
+      append(value);
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void append(Object value) {
+      if (containers.isEmpty()) {
+        if (value instanceof JSONObject) {
+          JSONObject map = (JSONObject) value;
+          Type resource = entryPoint.createResource(null);
+          resource.refresh(ETag.parse((String) map.get("etag")), map);
+          target.put(resource.getId().toString(), resource);
+        }
+      } else if (containers.getFirst() instanceof JSONObject) {
+        ((JSONObject) containers.getFirst()).put(keys.getFirst(), value);
+      } else {
+        ((JSONArray) containers.getFirst()).add(value);
+      }
+    }
   }
 }
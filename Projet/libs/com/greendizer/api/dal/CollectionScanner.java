@@ -0,0 +1,254 @@
+package com.greendizer.api.dal;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.greendizer.api.net.ETag;
+import com.greendizer.api.resource.AbstractResource;
+
+
+/**
+ * Represents a lazy scan over all the resources of a collection.
+ * Pages are fetched on demand as the iteration moves forward and are released once consumed,
+ * so that a whole collection can be walked through with a constant memory footprint.
+ * Each iteration reads ahead on an executor of its own, so that it never waits behind the asynchronous calls of the client.
+ * @param <Type> A resource type.
+ */
+public class CollectionScanner<Type extends AbstractResource> implements Iterable<Type> {
+
+  private final Collection<Type> collection;
+  private int pageSize;
+  private int readAhead;
+  private boolean consistent;
+
+  /**
+   * Creates a scanner over the given collection.
+   * @param collection Collection to scan.
+   * @param pageSize Number of resources to fetch per request.
+   */
+  public CollectionScanner(Collection<Type> collection, int pageSize) {
+    this.collection = collection;
+    this.readAhead = 1;
+    this.consistent = true;
+    setPageSize(pageSize);
+  }
+
+  /**
+   * Returns the number of resources fetched per request.
+   * @return Number of resources fetched per request.
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the number of resources fetched per request to the given value.
+   * @param pageSize Page size value to be set.
+   */
+  public void setPageSize(int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Returns the number of pages fetched in the background ahead of the iteration.
+   * @return Number of pages fetched in the background ahead of the iteration.
+   */
+  public int getReadAhead() {
+    return readAhead;
+  }
+
+  /**
+   * Sets the number of pages fetched in the background ahead of the iteration, 0 to fetch pages synchronously.
+   * @param readAhead Read-ahead window value to be set.
+   */
+  public void setReadAhead(int readAhead) {
+    if (readAhead < 0) {
+      throw new IllegalArgumentException("Read-ahead window cannot be negative");
+    }
+    this.readAhead = readAhead;
+  }
+
+  /**
+   * Returns true if all the pages must belong to the same version of the collection, false otherwise.
+   * @return True if all the pages must belong to the same version of the collection, false otherwise.
+   */
+  public boolean isConsistent() {
+    return consistent;
+  }
+
+  /**
+   * Turns on/off the {@code If-Range} consistency check.
+   * When on, the iteration fails with a {@link ConcurrentModificationException} if the collection changes while being scanned.
+   * @param consistent Consistency flag.
+   */
+  public void setConsistent(boolean consistent) {
+    this.consistent = consistent;
+  }
+
+  /**
+   * Returns an iterator fetching the collection pages on demand.
+   * @return An iterator fetching the collection pages on demand.
+   */
+  @Override
+  public Iterator<Type> iterator() {
+    return new ScanIterator();
+  }
+
+  /**
+   * Represents an iterator fetching the collection pages on demand.
+   */
+  private class ScanIterator implements Iterator<Type> {
+
+    private final LinkedList<Future<Collection.Page<Type>>> pending;
+    private final LinkedList<Integer> offsets;
+    private ExecutorService executor;
+    private Iterator<Type> current;
+    private ETag etag;
+    private Integer total;
+    private int step;
+    private int scheduled;
+    private boolean exhausted;
+
+    private ScanIterator() {
+      this.pending = new LinkedList<Future<Collection.Page<Type>>>();
+      this.offsets = new LinkedList<Integer>();
+      this.step = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (current == null || !current.hasNext()) {
+        current = null;
+        if (exhausted && pending.isEmpty()) {
+          return false;
+        }
+        if (pending.isEmpty()) {
+          schedule(false);
+          if (pending.isEmpty()) {
+            return false;
+          }
+        }
+        int first = offsets.removeFirst();
+        Collection.Page<Type> page = await(pending.removeFirst());
+        if (page.changed) {
+          cancel();
+          throw new ConcurrentModificationException("The collection has changed while being scanned");
+        }
+        if (etag == null) {
+          etag = page.etag;
+        }
+        if (page.contentRange != null) {
+          total = page.contentRange.getTotal();
+        }
+        int count = page.resources.size();
+        if (page.contentRange != null && page.contentRange.getLast() != null) {
+          count = Math.max(count, page.contentRange.getLast() + 1 - first);
+        }
+        int reached = first + count;
+        if (count == 0 || total == null && count < step || total != null && reached >= total) {
+          exhausted = true;
+          cancel();
+        } else if (count < step) {
+          // The server caps the page size below the requested one: go on from where this page ended.
+          cancel();
+          step = count;
+          scheduled = reached;
+        }
+        current = page.resources.values().iterator();
+        while (!exhausted && pending.size() < readAhead) {
+          schedule(true);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Type next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+
+    /**
+     * Defined in {@code java.util.Iterator} but not supported in this implementation.
+     */
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Schedules the fetch of the next page.
+     * @param background True to fetch the page on the read-ahead executor, false to fetch it right away.
+     */
+    private void schedule(boolean background) {
+      if (total != null && scheduled >= total) {
+        exhausted = true;
+        shutdown();
+        return;
+      }
+      final int first = scheduled;
+      final int count = step;
+      final ETag ifRange = consistent ? etag : null;
+      scheduled += count;
+      FutureTask<Collection.Page<Type>> task = new FutureTask<Collection.Page<Type>>(new Callable<Collection.Page<Type>>() {
+        public Collection.Page<Type> call() throws Exception {
+          return collection.fetchPage(first, count, ifRange);
+        }
+      });
+      pending.addLast(task);
+      offsets.addLast(first);
+      if (background) {
+        if (executor == null) {
+          executor = collection.getEntryPoint().getClient().newExecutor(readAhead);
+        }
+        executor.execute(task);
+      } else {
+        task.run();
+      }
+    }
+
+    private Collection.Page<Type> await(Future<Collection.Page<Type>> future) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel();
+        throw new RuntimeException("Interrupted while scanning collection", e);
+      } catch (ExecutionException e) {
+        cancel();
+        throw new RuntimeException("Cannot scan collection", e.getCause());
+      }
+    }
+
+    private void cancel() {
+      for (Future<Collection.Page<Type>> future : pending) {
+        future.cancel(false);
+      }
+      pending.clear();
+      offsets.clear();
+      shutdown();
+    }
+
+    /**
+     * Shuts down the read-ahead executor, letting the page being fetched complete.
+     */
+    private void shutdown() {
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.greendizer.api.dal;
+
+import com.greendizer.api.resource.AbstractResource;
+
+
+/**
+ * Represents a modification to be applied to many resources at once.
+ * @param <Type> A resource type.
+ * @see EntryPoint#update(Iterable, Delta)
+ */
+public interface Delta<Type extends AbstractResource> {
+
+  /**
+   * Applies the modification to the given resource, typically through its setters.
+   * @param resource Resource to be modified.
+   */
+  void apply(Type resource);
+}
@@ -1,6 +1,17 @@
 package com.greendizer.api.dal;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import com.greendizer.api.client.AbstractClient;
 import com.greendizer.api.resource.AbstractResource;
@@ -10,14 +21,16 @@ import com.greendizer.api.resource.ResourceId;
 /**
  * Represents the entry point for a type of resources.
  * An entry point of a given type can be used to create resources or retrieve collections of this type.
- * An entry point manages caches for both resources and collections.
+ * An entry point manages caches for both resources and collections, bounded by a pluggable {@link CachePolicy}.
+ * Strongly cached resources are also held by the entry point itself, so that it can be manipulated as a list.
  * @param <Type> A resource type.
  */
 public abstract class EntryPoint<Type extends AbstractResource> extends AbstractResouceHolder<Type> {
 
   private final AbstractClient<?, ?, ?> client;
   private final String uri;
-  private HashMap<String, Collection<Type>> collections;
+  private volatile Cache<Type> cache;
+  private volatile Cache<Collection<Type>> collections;
 
   /**
    * Creates an entry point with an API client and a base URI.
@@ -27,7 +40,44 @@ public abstract class EntryPoint<Type extends AbstractResource> extends Abstract
   public EntryPoint(AbstractClient<?, ?, ?> client, String uri) {
     this.client = client;
     this.uri = uri;
-    this.collections = new HashMap<String, Collection<Type>>();
+    setCachePolicy(CachePolicy.unbounded());
+  }
+
+  /**
+   * Replaces the resources and collections caches with empty ones following the given policy.
+   * @param policy Cache policy to be used.
+   */
+  public void setCachePolicy(CachePolicy policy) {
+    Cache<Type> cache = new Cache<Type>(policy);
+    cache.addEvictionListener(new Cache.EvictionListener<Type>() {
+      public void onEviction(String key, Type value) {
+        synchronized (resources) {
+          // The key may have been stored again since its eviction.
+          if (resources.get(key) == value) {
+            resources.remove(key);
+          }
+        }
+      }
+    });
+    this.cache = cache;
+    this.collections = new Cache<Collection<Type>>(policy);
+    resources.clear();
+  }
+
+  /**
+   * Returns the resources cache, giving access to its metrics and eviction listeners.
+   * @return The resources cache.
+   */
+  public Cache<Type> getResourceCache() {
+    return cache;
+  }
+
+  /**
+   * Returns the collections cache, giving access to its metrics and eviction listeners.
+   * @return The collections cache.
+   */
+  public Cache<Collection<Type>> getCollectionCache() {
+    return collections;
   }
 
   /**
@@ -46,10 +96,12 @@ public abstract class EntryPoint<Type extends AbstractResource> extends Abstract
     if (query == null) {
       throw new NullPointerException("Query should not be null");
     }
-    if (collections.containsKey(query)) {
-      return collections.get(query);
+    Cache<Collection<Type>> collections = this.collections;
+    Collection<Type> collection = collections.get(query);
+    if (collection != null) {
+      return collection;
     }
-    Collection<Type> collection = new Collection<Type>(this, query.equals("") ? uri : String.format("%s?q=%s", uri, query));
+    collection = new Collection<Type>(this, query.equals("") ? uri : String.format("%s?q=%s", uri, query));
     collections.put(query, collection);
     return collection;
   }
@@ -89,12 +141,246 @@ public abstract class EntryPoint<Type extends AbstractResource> extends Abstract
     if (id == null) {
       throw new NullPointerException("Query should not be null");
     }
-    if (resources.containsKey(id)) {
-      return resources.get(id);
+    Type resource = cache.get(id);
+    if (resource != null) {
+      return resource;
     }
-    Type resource = createResource(new ResourceId(id));
+    resource = createResource(new ResourceId(id));
     resource.refresh();
-    resources.put(id, resource);
+    store(id, resource);
     return resource;
   }
+
+  /**
+   * Returns the resources referenced with the given ids, in the same order, using as many parallel requests
+   * as the client connection pool allows per host.
+   * @param ids IDs of the resources to be retrieved.
+   * @return Resources referenced with the given ids, in the same order.
+   * @see #getByIds(java.util.Collection, int)
+   */
+  public List<Type> getByIds(java.util.Collection<String> ids) {
+    return getByIds(ids, client.getConnectionPool().getMaxConnectionsPerHost());
+  }
+
+  /**
+   * Returns the resources referenced with the given ids, in the same order.
+   * The resources missing from the entry point cache are loaded all together: when they outnumber the pages
+   * of the whole collection, the collection pages are downloaded instead of the resources themselves,
+   * the remaining ones are fetched with parallel requests. The cache is then filled in one pass.
+   * @param ids IDs of the resources to be retrieved.
+   * @param concurrency Maximum number of simultaneous requests.
+   * @return Resources referenced with the given ids, in the same order.
+   */
+  public List<Type> getByIds(java.util.Collection<String> ids, int concurrency) {
+    if (ids == null) {
+      throw new NullPointerException("IDs should not be null");
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive");
+    }
+    HashMap<String, Type> found = new HashMap<String, Type>();
+    LinkedHashSet<String> missing = new LinkedHashSet<String>();
+    for (String id : ids) {
+      if (id == null) {
+        throw new NullPointerException("ID should not be null");
+      }
+      if (!found.containsKey(id) && !missing.contains(id)) {
+        Type resource = cache.get(id);
+        if (resource != null) {
+          found.put(id, resource);
+        } else {
+          missing.add(id);
+        }
+      }
+    }
+    if (!missing.isEmpty()) {
+      Map<String, Type> loaded = load(missing, concurrency);
+      for (Map.Entry<String, Type> entry : loaded.entrySet()) {
+        store(entry.getKey(), entry.getValue());
+      }
+      found.putAll(loaded);
+    }
+    List<Type> result = new ArrayList<Type>(ids.size());
+    for (String id : ids) {
+      result.add(found.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Applies the given modification to the resources matching the given search pattern and saves them.
+   * @param query Search pattern.
+   * @param delta Modification to be applied.
+   * @return Outcome of the update, resource by resource.
+   * @see Collection#update(Delta, int)
+   */
+  public BulkResult<Type> update(String query, Delta<? super Type> delta) {
+    return search(query).update(delta, client.getConnectionPool().getMaxConnectionsPerHost());
+  }
+
+  /**
+   * Applies the given modification to the given resources and saves them, using as many parallel requests
+   * as the client connection pool allows per host.
+   * @param resources Resources to be updated.
+   * @param delta Modification to be applied.
+   * @return Outcome of the update, resource by resource.
+   * @see #update(Iterable, Delta, int)
+   */
+  public BulkResult<Type> update(Iterable<? extends Type> resources, Delta<? super Type> delta) {
+    return update(resources, delta, client.getConnectionPool().getMaxConnectionsPerHost());
+  }
+
+  /**
+   * Applies the given modification to the given resources and saves them.
+   * The API has no batch endpoint, so each modified resource is sent its own {@code PATCH} request
+   * carrying its modified properties only, and takes the ETag of the response.
+   * The resources are consumed as they are saved, at most {@code concurrency} at a time.
+   * A failure does not stop the update of the other resources.
+   * @param resources Resources to be updated.
+   * @param delta Modification to be applied.
+   * @param concurrency Maximum number of simultaneous requests.
+   * @return Outcome of the update, resource by resource.
+   */
+  public BulkResult<Type> update(Iterable<? extends Type> resources, final Delta<? super Type> delta, int concurrency) {
+    if (resources == null || delta == null) {
+      throw new NullPointerException("Resources and delta should not be null");
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive");
+    }
+    final BulkResult<Type> result = new BulkResult<Type>();
+    final Semaphore slots = new Semaphore(concurrency);
+    ExecutorService executor = client.newExecutor(concurrency);
+    try {
+      for (final Type resource : resources) {
+        slots.acquire();
+        executor.execute(new Runnable() {
+          public void run() {
+            try {
+              delta.apply(resource);
+              resource.save();
+              result.addSuccess(resource);
+            } catch (Exception e) {
+              result.addFailure(resource, e);
+            } finally {
+              slots.release();
+            }
+          }
+        });
+      }
+      slots.acquire(concurrency);
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while updating resources", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Loads the resources referenced with the given ids.
+   * @param ids IDs of the resources to be loaded.
+   * @param concurrency Maximum number of simultaneous requests.
+   * @return The loaded resources referenced by their ids.
+   */
+  private Map<String, Type> load(Set<String> ids, int concurrency) {
+    ExecutorService executor = client.newExecutor(Math.min(concurrency, ids.size()));
+    try {
+      HashMap<String, Type> loaded = new HashMap<String, Type>();
+      if (ids.size() > concurrency) {
+        scan(ids, loaded, executor);
+      }
+      LinkedHashMap<String, Future<Type>> futures = new LinkedHashMap<String, Future<Type>>();
+      for (String id : ids) {
+        if (!loaded.containsKey(id)) {
+          final Type resource = createResource(new ResourceId(id));
+          futures.put(id, executor.submit(new Callable<Type>() {
+            public Type call() {
+              resource.refresh();
+              return resource;
+            }
+          }));
+        }
+      }
+      for (Map.Entry<String, Future<Type>> future : futures.entrySet()) {
+        loaded.put(future.getKey(), unwrap(future.getValue()));
+      }
+      return loaded;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Cannot load resources", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Looks for the resources referenced with the given ids in the pages of the whole collection.
+   * The first page tells the size of the collection, the other ones are only downloaded if they are
+   * fewer than the resources still missing. Pages of a modified collection are ignored.
+   * @param ids IDs of the resources to be loaded.
+   * @param loaded Map to put the found resources into.
+   * @param executor Executor to fetch the pages on.
+   * @throws Exception If a page cannot be fetched.
+   */
+  private void scan(Set<String> ids, Map<String, Type> loaded, ExecutorService executor) throws Exception {
+    final Collection<Type> collection = all();
+    final Collection.Page<Type> first = collection.fetchPage(0, Collection.maxLength, null);
+    collect(first, ids, loaded);
+    if (first.contentRange == null) {
+      return;
+    }
+    int total = first.contentRange.getTotal();
+    if ((total - 1) / Collection.maxLength >= ids.size() - loaded.size()) {
+      return;
+    }
+    List<Future<Collection.Page<Type>>> futures = new ArrayList<Future<Collection.Page<Type>>>();
+    for (int offset = Collection.maxLength; offset < total; offset += Collection.maxLength) {
+      final int start = offset;
+      futures.add(executor.submit(new Callable<Collection.Page<Type>>() {
+        public Collection.Page<Type> call() throws Exception {
+          return collection.fetchPage(start, Collection.maxLength, first.etag);
+        }
+      }));
+    }
+    for (Future<Collection.Page<Type>> future : futures) {
+      Collection.Page<Type> page = unwrap(future);
+      if (!page.changed) {
+        collect(page, ids, loaded);
+      }
+    }
+  }
+
+  private void collect(Collection.Page<Type> page, Set<String> ids, Map<String, Type> loaded) {
+    for (Map.Entry<String, Type> entry : page.resources.entrySet()) {
+      if (ids.contains(entry.getKey())) {
+        loaded.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static <T> T unwrap(Future<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * Caches the given resource, also holding it when strongly referenced.
+   * @param id ID of the resource.
+   * @param resource Resource to be cached.
+   */
+  private void store(String id, Type resource) {
+    Cache<Type> cache = this.cache;
+    cache.put(id, resource);
+    if (cache.getPolicy().getReferenceType() == ReferenceTypeEnum.STRONG) {
+      synchronized (resources) {
+        resources.put(id, resource);
+      }
+    }
+  }
 }
@@ -0,0 +1,24 @@
+package com.greendizer.api.dal;
+
+
+/**
+ * Represents an enumeration of the ways a cache can hold its values.
+ */
+public enum ReferenceTypeEnum {
+
+  /**
+   * Values are held until they are evicted by the cache policy.
+   */
+  STRONG,
+
+  /**
+   * Values are held until the garbage collector needs memory.
+   */
+  SOFT,
+
+  /**
+   * Values are held as long as they are referenced elsewhere.
+   */
+  WEAK,
+  ;
+}
@@ -0,0 +1,172 @@
+package com.greendizer.api.dal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Represents a dictionary of resources referenced by their ids which also keeps them addressable by position.
+ * The positional index is maintained by the mutators of the map itself and rebuilt lazily after a removal.
+ * The key, value and entry views are read-only, so that the index cannot be bypassed.
+ * The map and its index are guarded by the lock of the map: iterating the views requires holding it,
+ * whereas the resource list is published as an immutable snapshot.
+ * @param <Type> A resource type.
+ */
+@SuppressWarnings("serial")
+class ResourceMap<Type> extends LinkedHashMap<String, Type> {
+
+  private final ArrayList<Type> list;
+  private final HashMap<Object, Integer> positions;
+  private boolean stale;
+  private List<Type> snapshot;
+
+  /**
+   * Creates a new empty resource map.
+   */
+  ResourceMap() {
+    this.list = new ArrayList<Type>();
+    this.positions = new HashMap<Object, Integer>();
+  }
+
+  @Override
+  public synchronized Type get(Object id) {
+    return super.get(id);
+  }
+
+  @Override
+  public synchronized boolean containsKey(Object id) {
+    return super.containsKey(id);
+  }
+
+  @Override
+  public synchronized int size() {
+    return super.size();
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return super.isEmpty();
+  }
+
+  @Override
+  public synchronized Type put(String id, Type resource) {
+    Type previous = super.put(id, resource);
+    if (stale || previous == resource) {
+      return previous;
+    }
+    snapshot = null;
+    if (previous == null) {
+      list.add(resource);
+      if (!positions.containsKey(resource)) {
+        positions.put(resource, list.size() - 1);
+      }
+    } else {
+      stale = true;
+    }
+    return previous;
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends Type> map) {
+    LinkedHashMap<String, Type> copy;
+    synchronized (map) {
+      copy = new LinkedHashMap<String, Type>(map);
+    }
+    synchronized (this) {
+      list.ensureCapacity(list.size() + copy.size());
+      for (Map.Entry<String, Type> entry : copy.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  @Override
+  public synchronized Type remove(Object id) {
+    Type previous = super.remove(id);
+    if (previous != null) {
+      stale = true;
+      snapshot = null;
+    }
+    return previous;
+  }
+
+  @Override
+  public synchronized void clear() {
+    super.clear();
+    list.clear();
+    positions.clear();
+    stale = false;
+    snapshot = null;
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(super.keySet());
+  }
+
+  @Override
+  public Collection<Type> values() {
+    return Collections.unmodifiableCollection(super.values());
+  }
+
+  @Override
+  public Set<Map.Entry<String, Type>> entrySet() {
+    return Collections.unmodifiableSet(super.entrySet());
+  }
+
+  /**
+   * Returns the index-th resource of the map.
+   * @param index Index to check against.
+   * @return The index-th resource of the map.
+   */
+  synchronized Type get(int index) {
+    index();
+    return list.get(index);
+  }
+
+  /**
+   * Returns the index of the given resource in the map, -1 if not found.
+   * @param resource Resource to check against.
+   * @return Index of the given resource in the map, -1 if not found.
+   */
+  synchronized int indexOf(Object resource) {
+    index();
+    Integer position = positions.get(resource);
+    return position == null ? -1 : position;
+  }
+
+  /**
+   * Returns an immutable snapshot of the resources of the map in insertion order.
+   * @return An immutable snapshot of the resources of the map in insertion order.
+   */
+  synchronized List<Type> list() {
+    if (snapshot == null) {
+      index();
+      snapshot = Collections.unmodifiableList(new ArrayList<Type>(list));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Rebuilds the positional index after a removal.
+   */
+  private void index() {
+    if (stale) {
+      list.clear();
+      positions.clear();
+      for (Type resource : super.values()) {
+        list.add(resource);
+        if (!positions.containsKey(resource)) {
+          positions.put(resource, list.size() - 1);
+        }
+      }
+      stale = false;
+    }
+  }
+}
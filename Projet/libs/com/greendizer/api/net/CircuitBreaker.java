@@ -0,0 +1,269 @@
+package com.greendizer.api.net;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Represents the circuit breakers of an API client, one per endpoint and resource family.
+ * A circuit opens once the failure rate over its last requests crosses a threshold, and then fails requests
+ * fast instead of sending them. Once a delay has elapsed, it lets a single probe request through: the circuit
+ * closes if the probe succeeds and opens again otherwise.
+ * Connection errors, server errors and throttling responses count as failures.
+ */
+public class CircuitBreaker {
+
+  private static final int defaultWindowSize = 20;
+  private static final int defaultMinRequests = 10;
+  private static final double defaultFailureThreshold = 0.5;
+  private static final long defaultOpenDelay = 30000;
+  private static final String[] families = {
+    "reports", "messages", "invoices", "threads", "settings", "emails", "companies", "sellers", "buyers"
+  };
+  private final int windowSize;
+  private final int minRequests;
+  private final double failureThreshold;
+  private final long openDelay;
+  private final Map<String, Circuit> circuits;
+  private final List<CircuitListener> listeners;
+
+  /**
+   * Creates a circuit breaker with the default settings.
+   */
+  public CircuitBreaker() {
+    this(defaultWindowSize, defaultMinRequests, defaultFailureThreshold, defaultOpenDelay);
+  }
+
+  /**
+   * Creates a circuit breaker.
+   * @param windowSize Number of last requests the failure rate is computed over.
+   * @param minRequests Minimum number of requests in the window before the circuit can open.
+   * @param failureThreshold Failure rate, between 0 and 1, from which the circuit opens.
+   * @param openDelay Time in milliseconds the circuit stays open before letting a probe request through.
+   */
+  public CircuitBreaker(int windowSize, int minRequests, double failureThreshold, long openDelay) {
+    if (windowSize < 1 || minRequests < 1 || minRequests > windowSize || failureThreshold <= 0 || failureThreshold > 1 || openDelay < 0) {
+      throw new IllegalArgumentException("Invalid circuit breaker settings");
+    }
+    this.windowSize = windowSize;
+    this.minRequests = minRequests;
+    this.failureThreshold = failureThreshold;
+    this.openDelay = openDelay;
+    this.circuits = new HashMap<String, Circuit>();
+    this.listeners = new CopyOnWriteArrayList<CircuitListener>();
+  }
+
+  /**
+   * Returns the key of the circuit guarding the given URL, made of its endpoint and resource family.
+   * The family is the last known collection name found in the path, or its first segment.
+   * @param url Request URL.
+   * @return The key of the circuit guarding the given URL.
+   */
+  public static String getKey(URL url) {
+    String[] segments = url.getPath().split("/");
+    String family = "";
+    for (int i = segments.length - 1; i >= 0 && family.equals(""); i--) {
+      for (String candidate : families) {
+        if (candidate.equals(segments[i])) {
+          family = candidate;
+          break;
+        }
+      }
+    }
+    for (int i = 0; i < segments.length && family.equals(""); i++) {
+      family = segments[i];
+    }
+    return String.format("%s/%s", url.getAuthority(), family);
+  }
+
+  /**
+   * Returns true if a request can be sent through the given circuit, false if it should fail fast.
+   * Every allowed request must be followed by a call to {@link #onSuccess}, {@link #onFailure} or {@link #onCancel}.
+   * @param key Circuit key.
+   * @return True if a request can be sent through the given circuit, false if it should fail fast.
+   */
+  public boolean allow(String key) {
+    CircuitStateEnum from;
+    synchronized (this) {
+      Circuit circuit = getCircuit(key);
+      if (circuit.state == CircuitStateEnum.CLOSED) {
+        return true;
+      }
+      if (circuit.state == CircuitStateEnum.HALF_OPEN || System.currentTimeMillis() - circuit.openedAt < openDelay) {
+        circuit.rejected++;
+        return false;
+      }
+      from = circuit.state;
+      circuit.state = CircuitStateEnum.HALF_OPEN;
+    }
+    notify(key, from, CircuitStateEnum.HALF_OPEN);
+    return true;
+  }
+
+  /**
+   * Records a successful request through the given circuit, closing it if it was probing.
+   * @param key Circuit key.
+   */
+  public void onSuccess(String key) {
+    synchronized (this) {
+      Circuit circuit = getCircuit(key);
+      if (circuit.state != CircuitStateEnum.HALF_OPEN) {
+        circuit.record(false);
+        return;
+      }
+      circuit.reset();
+      circuit.state = CircuitStateEnum.CLOSED;
+    }
+    notify(key, CircuitStateEnum.HALF_OPEN, CircuitStateEnum.CLOSED);
+  }
+
+  /**
+   * Records a failed request through the given circuit, opening it if the failure rate crosses the threshold
+   * or if it was probing.
+   * @param key Circuit key.
+   */
+  public void onFailure(String key) {
+    CircuitStateEnum from;
+    synchronized (this) {
+      Circuit circuit = getCircuit(key);
+      from = circuit.state;
+      if (from == CircuitStateEnum.OPEN) {
+        return;
+      }
+      if (from == CircuitStateEnum.CLOSED) {
+        circuit.record(true);
+        if (circuit.count < minRequests || circuit.failures < failureThreshold * circuit.count) {
+          return;
+        }
+      }
+      circuit.reset();
+      circuit.state = CircuitStateEnum.OPEN;
+      circuit.openedAt = System.currentTimeMillis();
+    }
+    notify(key, from, CircuitStateEnum.OPEN);
+  }
+
+  /**
+   * Records a request through the given circuit which ended without an outcome, such as an interrupted one.
+   * A probing circuit goes back to open so that another probe can be sent right away.
+   * @param key Circuit key.
+   */
+  public void onCancel(String key) {
+    synchronized (this) {
+      Circuit circuit = getCircuit(key);
+      if (circuit.state != CircuitStateEnum.HALF_OPEN) {
+        return;
+      }
+      circuit.state = CircuitStateEnum.OPEN;
+    }
+    notify(key, CircuitStateEnum.HALF_OPEN, CircuitStateEnum.OPEN);
+  }
+
+  /**
+   * Returns the state of the given circuit.
+   * @param key Circuit key.
+   * @return The state of the given circuit.
+   */
+  public synchronized CircuitStateEnum getState(String key) {
+    Circuit circuit = circuits.get(key);
+    return circuit == null ? CircuitStateEnum.CLOSED : circuit.state;
+  }
+
+  /**
+   * Returns the number of requests failed fast by the given circuit.
+   * @param key Circuit key.
+   * @return Number of requests failed fast by the given circuit.
+   */
+  public synchronized long getRejected(String key) {
+    Circuit circuit = circuits.get(key);
+    return circuit == null ? 0 : circuit.rejected;
+  }
+
+  /**
+   * Returns the states of all the circuits used so far, by key.
+   * @return The states of all the circuits used so far, by key.
+   */
+  public synchronized Map<String, CircuitStateEnum> getStates() {
+    Map<String, CircuitStateEnum> states = new HashMap<String, CircuitStateEnum>();
+    for (Map.Entry<String, Circuit> entry : circuits.entrySet()) {
+      states.put(entry.getKey(), entry.getValue().state);
+    }
+    return states;
+  }
+
+  /**
+   * Adds a listener notified whenever a circuit changes state.
+   * @param listener Listener to be added.
+   */
+  public void addListener(CircuitListener listener) {
+    if (listener == null) {
+      throw new NullPointerException("Listener should not be null");
+    }
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener previously added.
+   * @param listener Listener to be removed.
+   */
+  public void removeListener(CircuitListener listener) {
+    listeners.remove(listener);
+  }
+
+  private Circuit getCircuit(String key) {
+    Circuit circuit = circuits.get(key);
+    if (circuit == null) {
+      circuit = new Circuit(windowSize);
+      circuits.put(key, circuit);
+    }
+    return circuit;
+  }
+
+  private void notify(String key, CircuitStateEnum from, CircuitStateEnum to) {
+    for (CircuitListener listener : listeners) {
+      listener.onStateChange(key, from, to);
+    }
+  }
+
+  /**
+   * Represents the state of a single circuit and the outcomes of its last requests.
+   */
+  private static class Circuit {
+
+    private final boolean[] window;
+    private int next;
+    private int count;
+    private int failures;
+    private CircuitStateEnum state = CircuitStateEnum.CLOSED;
+    private long openedAt;
+    private long rejected;
+
+    private Circuit(int windowSize) {
+      this.window = new boolean[windowSize];
+    }
+
+    private void record(boolean failure) {
+      if (count == window.length) {
+        if (window[next]) {
+          failures--;
+        }
+      } else {
+        count++;
+      }
+      window[next] = failure;
+      if (failure) {
+        failures++;
+      }
+      next = (next + 1) % window.length;
+    }
+
+    private void reset() {
+      next = 0;
+      count = 0;
+      failures = 0;
+    }
+  }
+}
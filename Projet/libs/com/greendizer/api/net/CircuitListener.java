@@ -0,0 +1,17 @@
+package com.greendizer.api.net;
+
+
+/**
+ * Represents a listener notified whenever a circuit of a {@link CircuitBreaker} changes state.
+ * Listeners are run on the thread whose request caused the transition.
+ */
+public interface CircuitListener {
+
+  /**
+   * Called once a circuit has changed state.
+   * @param key Circuit key, made of the endpoint and the resource family.
+   * @param from Previous state.
+   * @param to New state.
+   */
+  void onStateChange(String key, CircuitStateEnum from, CircuitStateEnum to);
+}
@@ -0,0 +1,23 @@
+package com.greendizer.api.net;
+
+
+/**
+ * Enumerates the states of a circuit of a {@link CircuitBreaker}.
+ */
+public enum CircuitStateEnum {
+
+  /**
+   * Requests go through and their failures are counted.
+   */
+  CLOSED,
+
+  /**
+   * Requests are rejected until the open delay elapses.
+   */
+  OPEN,
+
+  /**
+   * A single probe request goes through to decide whether the circuit closes or opens again.
+   */
+  HALF_OPEN;
+}
@@ -0,0 +1,183 @@
+package com.greendizer.api.net;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Represents an adaptive limit of the number of requests an API client has in flight.
+ * The limit follows an additive increase, multiplicative decrease scheme: it grows by one request
+ * every time a whole window of requests succeeds, and shrinks when the server fails, throttles
+ * the client or answers much slower than usual. Client errors such as a forbidden access or a conflict
+ * do not shrink it.
+ */
+public class ConcurrencyLimiter {
+
+  private static final double errorBackoff = 0.5;
+  private static final double latencyBackoff = 0.9;
+  private static final double latencyTolerance = 2.0;
+  private static final double smoothing = 0.05;
+  private final int minLimit;
+  private final int maxLimit;
+  private final ReentrantLock lock;
+  private final Condition available;
+  private double limit;
+  private double baseline;
+  private int inFlight;
+  private int waiting;
+  private long acquired;
+  private long waitTime;
+
+  /**
+   * Creates a concurrency limiter with its initial, minimum and maximum limits.
+   * @param initialLimit Initial number of requests allowed in flight.
+   * @param minLimit Minimum number of requests allowed in flight.
+   * @param maxLimit Maximum number of requests allowed in flight.
+   */
+  public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("Limits must be positive and ordered");
+    }
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.lock = new ReentrantLock();
+    this.available = lock.newCondition();
+  }
+
+  /**
+   * Waits until the number of requests in flight is under the limit, then counts one more.
+   * @throws InterruptedIOException If interrupted while waiting.
+   */
+  public void acquire() throws InterruptedIOException {
+    lock.lock();
+    try {
+      acquired++;
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return;
+      }
+      long start = System.nanoTime();
+      waiting++;
+      try {
+        while (inFlight >= (int) limit) {
+          available.await();
+        }
+        inFlight++;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the concurrency limiter");
+      } finally {
+        waiting--;
+        waitTime += System.nanoTime() - start;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Counts one request less in flight and adapts the limit to its outcome.
+   * @param latency Time in nanoseconds the request took to be answered.
+   * @param response Received response, {@code null} if the request failed or timed out without any.
+   */
+  public void release(long latency, Response response) {
+    lock.lock();
+    try {
+      inFlight--;
+      if (response == null || response.isError() || response.isOverloaded()) {
+        limit = Math.max(minLimit, limit * errorBackoff);
+      } else if (baseline > 0 && latency > baseline * latencyTolerance) {
+        limit = Math.max(minLimit, limit * latencyBackoff);
+      } else {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+      if (response != null && !response.isError()) {
+        baseline = baseline == 0 ? latency : baseline + smoothing * (latency - baseline);
+      }
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the current number of requests allowed in flight.
+   * @return Current number of requests allowed in flight.
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of requests currently in flight.
+   * @return Number of requests currently in flight.
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of requests currently waiting to be sent.
+   * @return Number of requests currently waiting to be sent.
+   */
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of requests let through so far.
+   * @return Number of requests let through so far.
+   */
+  public long getAcquired() {
+    lock.lock();
+    try {
+      return acquired;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the time in milliseconds spent by all the requests waiting to be sent.
+   * @return Time in milliseconds spent by all the requests waiting to be sent.
+   */
+  public long getWaitTime() {
+    lock.lock();
+    try {
+      return TimeUnit.NANOSECONDS.toMillis(waitTime);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the smoothed latency in milliseconds of the successful requests, used as the reference for slow responses.
+   * @return Smoothed latency in milliseconds of the successful requests.
+   */
+  public long getBaselineLatency() {
+    lock.lock();
+    try {
+      return TimeUnit.NANOSECONDS.toMillis((long) baseline);
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.greendizer.api.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Represents a pool of persistent HTTP connections shared by all the requests of an API client.
+ * Sockets are kept alive by the underlying {@code HttpURLConnection} implementation and reused
+ * as long as the response bodies are fully consumed, the pool bounds the number of connections
+ * leased per host and keeps track of their idle time.
+ * The pool leaves the JVM-wide settings to the application, which should keep {@code http.keepAlive}
+ * enabled and set {@code http.maxConnections} at least to the maximum number of connections per host,
+ * so that the sockets are actually reused.
+ */
+public class ConnectionPool {
+
+  private static final int defaultMaxConnectionsPerHost = 5;
+  private static final long defaultIdleTimeout = 30000;
+  private final int maxConnectionsPerHost;
+  private final long idleTimeout;
+  private final HashMap<String, Host> hosts;
+
+  /**
+   * Creates a connection pool with the default limits.
+   */
+  public ConnectionPool() {
+    this(defaultMaxConnectionsPerHost, defaultIdleTimeout);
+  }
+
+  /**
+   * Creates a connection pool with the maximum number of connections per host and the idle timeout.
+   * @param maxConnectionsPerHost Maximum number of simultaneous connections per host.
+   * @param idleTimeout Time in milliseconds after which an idle connection is considered stale.
+   */
+  public ConnectionPool(int maxConnectionsPerHost, long idleTimeout) {
+    if (maxConnectionsPerHost < 1) {
+      throw new IllegalArgumentException("At least one connection per host is required");
+    }
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    this.idleTimeout = idleTimeout;
+    this.hosts = new HashMap<String, Host>();
+  }
+
+  /**
+   * Leases a connection to the given URL, waiting for one to be released if the host limit is reached.
+   * @param url Target URL.
+   * @return A connection to the given URL.
+   * @throws IOException If the connection cannot be opened.
+   */
+  public HttpURLConnection lease(URL url) throws IOException {
+    Host host = getHost(url);
+    try {
+      host.permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection to " + url.getHost());
+    }
+    try {
+      return (HttpURLConnection) url.openConnection();
+    } catch (IOException e) {
+      host.permits.release();
+      throw e;
+    } catch (RuntimeException e) {
+      host.permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Releases the given connection back to the pool.
+   * A connection which is not reusable is closed instead of being kept alive.
+   * @param connection Connection to be released.
+   * @param reusable True if the response has been fully consumed, false otherwise.
+   */
+  public void release(HttpURLConnection connection, boolean reusable) {
+    if (!reusable) {
+      connection.disconnect();
+    }
+    Host host = getHost(connection.getURL());
+    synchronized (host) {
+      host.lastUsed = System.currentTimeMillis();
+    }
+    host.permits.release();
+  }
+
+  /**
+   * Returns true if the idle connections to the host of the given URL may have been closed by the server, false otherwise.
+   * Requests sent on a stale connection are allowed to be replayed once on a fresh one.
+   * @param url Target URL.
+   * @return True if the idle connections to the host of the given URL may have been closed by the server, false otherwise.
+   */
+  public boolean isStale(URL url) {
+    Host host = getHost(url);
+    synchronized (host) {
+      return host.lastUsed != 0 && System.currentTimeMillis() - host.lastUsed > idleTimeout;
+    }
+  }
+
+  /**
+   * Returns the number of connections currently leased to the host of the given URL.
+   * @param url Target URL.
+   * @return Number of connections currently leased to the host of the given URL.
+   */
+  public int getLeased(URL url) {
+    return maxConnectionsPerHost - getHost(url).permits.availablePermits();
+  }
+
+  /**
+   * Returns the maximum number of simultaneous connections per host.
+   * @return Maximum number of simultaneous connections per host.
+   */
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  /**
+   * Returns the time in milliseconds after which an idle connection is considered stale.
+   * @return Time in milliseconds after which an idle connection is considered stale.
+   */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  private synchronized Host getHost(URL url) {
+    String key = String.format("%s://%s:%d", url.getProtocol(), url.getHost(), url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+    Host host = hosts.get(key);
+    if (host == null) {
+      host = new Host(maxConnectionsPerHost);
+      hosts.put(key, host);
+    }
+    return host;
+  }
+
+  /**
+   * Represents the connections state of a single host.
+   */
+  private static class Host {
+
+    private final Semaphore permits;
+    private long lastUsed;
+
+    private Host(int maxConnections) {
+      this.permits = new Semaphore(maxConnections, true);
+    }
+  }
+}
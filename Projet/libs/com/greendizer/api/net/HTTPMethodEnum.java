@@ -56,6 +56,14 @@ public enum HTTPMethodEnum {
     return compliantVerb;
   }
   
+  /**
+   * Returns true if sending the request several times has the same effect as sending it once, false otherwise.
+   * @return True if sending the request several times has the same effect as sending it once, false otherwise.
+   */
+  public boolean isIdempotent() {
+    return this != POST && this != PATCH;
+  }
+  
   /**
    * Returns the actual HTTP method name.
    * @return The actual HTTP method name.
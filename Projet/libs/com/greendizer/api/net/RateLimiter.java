@@ -0,0 +1,123 @@
+package com.greendizer.api.net;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Represents a token bucket limiting the rate of the requests sent by an API client.
+ * Tokens are added at a constant rate up to the bucket capacity, each request takes one token
+ * and waits for it if the bucket is empty. Requests are served in the order they arrive.
+ */
+public class RateLimiter {
+
+  private final double permitsPerSecond;
+  private final int burst;
+  private double tokens;
+  private long lastRefill;
+  private int waiting;
+  private long acquired;
+  private long waitTime;
+
+  /**
+   * Creates a rate limiter letting the given number of requests per second through, after an initial burst.
+   * @param permitsPerSecond Number of requests per second, 0 for no limit.
+   * @param burst Maximum number of requests which can be sent at once after an idle period.
+   */
+  public RateLimiter(double permitsPerSecond, int burst) {
+    if (permitsPerSecond < 0 || burst < 1) {
+      throw new IllegalArgumentException("Rate cannot be negative and burst must be positive");
+    }
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.tokens = burst;
+    this.lastRefill = System.nanoTime();
+  }
+
+  /**
+   * Creates a rate limiter which does not limit anything.
+   * @return A rate limiter which does not limit anything.
+   */
+  public static RateLimiter unlimited() {
+    return new RateLimiter(0, 1);
+  }
+
+  /**
+   * Takes a token from the bucket, waiting for it if the bucket is empty.
+   * @throws InterruptedIOException If interrupted while waiting.
+   */
+  public void acquire() throws InterruptedIOException {
+    if (permitsPerSecond == 0) {
+      synchronized (this) {
+        acquired++;
+      }
+      return;
+    }
+    long wait;
+    synchronized (this) {
+      long now = System.nanoTime();
+      tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+      lastRefill = now;
+      tokens--;
+      wait = tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+      acquired++;
+      waitTime += wait;
+      if (wait > 0) {
+        waiting++;
+      }
+    }
+    if (wait == 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+    } finally {
+      synchronized (this) {
+        waiting--;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of requests per second, 0 if there is no limit.
+   * @return Number of requests per second, 0 if there is no limit.
+   */
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  /**
+   * Returns the maximum number of requests which can be sent at once after an idle period.
+   * @return Maximum number of requests which can be sent at once after an idle period.
+   */
+  public int getBurst() {
+    return burst;
+  }
+
+  /**
+   * Returns the number of requests currently waiting for a token.
+   * @return Number of requests currently waiting for a token.
+   */
+  public synchronized int getQueueDepth() {
+    return waiting;
+  }
+
+  /**
+   * Returns the number of tokens taken so far.
+   * @return Number of tokens taken so far.
+   */
+  public synchronized long getAcquired() {
+    return acquired;
+  }
+
+  /**
+   * Returns the time in milliseconds spent by all the requests waiting for a token.
+   * @return Time in milliseconds spent by all the requests waiting for a token.
+   */
+  public synchronized long getWaitTime() {
+    return TimeUnit.NANOSECONDS.toMillis(waitTime);
+  }
+}
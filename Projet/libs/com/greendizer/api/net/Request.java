@@ -1,22 +1,26 @@
 package com.greendizer.api.net;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.zip.GZIPOutputStream;
 
-import org.restlet.engine.util.InternetDateFormat;
-
 import android.util.Log;
 
 import com.greendizer.api.client.APIException;
 import com.greendizer.api.client.AbstractClient;
+import com.greendizer.api.util.DateUtil;
 
 /**
  * Represents an HTTP request to the Greendizer API.
@@ -34,9 +38,12 @@ public class Request {
   private String uri;
   private ContentTypeEnum contentType;
   private byte[] content;
+  private RequestBody body;
   private boolean compressContent;
+  private boolean streaming;
+  private ETag retryIfMatch;
+  private int attempts;
   private HttpURLConnection connection;
-  private static Calendar calendar = Calendar.getInstance();
 
   /**
    * Creates a request with the API client, the HTTP method and the target URI.
@@ -57,38 +64,189 @@ public class Request {
 
   /**
    * Sends the request to the server and returns the received HTTP response.
+   * A {@code GET} request whose response is read eagerly shares the response of an identical request in flight, if any.
    * @return The received HTTP response.
    * @throws IOException If a connection error occurred.
    *@throws APIException If a not acceptable HTTP status code is received.
    */
   public Response getResponse() throws IOException, APIException {
+    if (method != HTTPMethodEnum.GET || streaming) {
+      return send();
+    }
+    return client.getRequestCoalescer().coalesce(getKey(), new Callable<Response>() {
+      public Response call() throws Exception {
+        return send();
+      }
+    });
+  }
+
+  /**
+   * Returns the key identifying the request among identical ones, made of its method, URI and headers.
+   * @return The key identifying the request among identical ones.
+   */
+  private String getKey() {
+    StringBuilder key = new StringBuilder(method.realVerb()).append(' ').append(uri);
+    for (Map.Entry<String, String> header : new TreeMap<String, String>(headers).entrySet()) {
+      key.append('\n').append(header.getKey()).append(": ").append(header.getValue());
+    }
+    return key.toString();
+  }
+
+  /**
+   * Sends the request to the server and returns the received HTTP response.
+   * @return The received HTTP response.
+   * @throws IOException If a connection error occurred.
+   * @throws APIException If a not acceptable HTTP status code is received.
+   */
+  private Response send() throws IOException, APIException {
     if (client.usingOAuth()) {
       uri = uri + (uri == null || uri.equals("") ? "?" : "&") + "oauth_token=" + client.getSecret();
     }
-    connection = (HttpURLConnection) new URL(uri).openConnection();
-    connection.setRequestMethod(method.complaintVerb());
-    connection.setDoInput(true);
-    connection.setDoOutput(true);
-    connection.setRequestProperty("User-Agent", userAgent);
-    connection.setRequestProperty("Accept", acceptedResponseContentType);
-    connection.setRequestProperty("Accept-Encoding", "gzip,deflate");
-    connection.setRequestProperty("X-HTTP-Method-Override", method.realVerb());
-    connection.setRequestProperty("Authorization", String.format("%s {%s}", client.usingOAuth() ? "Bearer" : "Basic", client.getSecret()));
-    for (String headerName : headers.keySet()) {
-      connection.setRequestProperty(headerName, headers.get(headerName));
+    URL url = new URL(uri);
+    ConnectionPool pool = client.getConnectionPool();
+    RetryPolicy retryPolicy = client.getRetryPolicy();
+    retryPolicy.onRequest();
+    CircuitBreaker circuitBreaker = client.getCircuitBreaker();
+    String circuit = CircuitBreaker.getKey(url);
+    boolean stale = pool.isStale(url);
+    Response response = null;
+    attempts = 0;
+    while (response == null) {
+      if (!circuitBreaker.allow(circuit)) {
+        throw new APIException(StatusCodeEnum.SERVICE_UNAVAILABLE, "Circuit open for " + circuit);
+      }
+      if (attempts > 0 && retryIfMatch != null) {
+        setIfMatch(retryIfMatch);
+      }
+      attempts++;
+      try {
+        response = attempt(pool, url);
+      } catch (IOException e) {
+        if (stale && !hasWritingMethod()) {
+          circuitBreaker.onCancel(circuit);
+          stale = false;
+          attempts--;
+          continue;
+        }
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+          circuitBreaker.onCancel(circuit);
+        } else {
+          circuitBreaker.onFailure(circuit);
+        }
+        if (!isIdempotent() || !retryPolicy.shouldRetry(attempts, e)) {
+          throw e;
+        }
+        retryPolicy.backoff(attempts, -1);
+        continue;
+      } catch (RuntimeException e) {
+        // Not an outcome of the server, but the circuit must still get its probe back.
+        circuitBreaker.onCancel(circuit);
+        throw e;
+      }
+      if (response.isError() || response.isOverloaded()) {
+        circuitBreaker.onFailure(circuit);
+      } else {
+        circuitBreaker.onSuccess(circuit);
+      }
+      if (isIdempotent() && retryPolicy.shouldRetry(attempts, response)) {
+        response.close();
+        retryPolicy.backoff(attempts, response.getRetryAfter());
+        response = null;
+      }
     }
-    if (hasWritingMethod() && content != null) {
-      connection.setRequestProperty("Content-Type", (contentType == null ? ContentTypeEnum.URL_ENCODED : contentType).toString());
-      writeToConnection(connection, compressContent ? gzip(content) : content);
+    if (!response.isStreaming()) {
+      Log.e("greendizer", response.getContent());
     }
-    Response response = new Response(this);
-    Log.e("greendizer", response.getContent());
-    if (response.getStatusCode().isError()) {
+    if (response.isError()) {
       throw new APIException(response);
     }
     return response;
   }
 
+  /**
+   * Sends the request once it is allowed by the client rate and concurrency limiters,
+   * then reports its outcome to the concurrency limiter.
+   * @param pool Client connection pool.
+   * @param url Target URL.
+   * @return The received HTTP response.
+   * @throws IOException If a connection error occurred.
+   */
+  private Response attempt(ConnectionPool pool, URL url) throws IOException {
+    client.getRateLimiter().acquire();
+    ConcurrencyLimiter limiter = client.getConcurrencyLimiter();
+    limiter.acquire();
+    long start = System.nanoTime();
+    Response response = null;
+    try {
+      response = execute(pool, url);
+      return response;
+    } finally {
+      limiter.release(System.nanoTime() - start, response);
+    }
+  }
+
+  /**
+   * Sends the request on a connection leased from the client pool and reads the response.
+   * @param pool Client connection pool.
+   * @param url Target URL.
+   * @return The received HTTP response.
+   * @throws IOException If a connection error occurred.
+   */
+  private Response execute(ConnectionPool pool, URL url) throws IOException {
+    connection = pool.lease(url);
+    Response response = null;
+    try {
+      connection.setRequestMethod(method.complaintVerb());
+      if (client.getTimeout() > 0) {
+        connection.setConnectTimeout((int) Math.min(client.getTimeout(), Integer.MAX_VALUE));
+        connection.setReadTimeout((int) Math.min(client.getTimeout(), Integer.MAX_VALUE));
+      }
+      connection.setDoInput(true);
+      connection.setDoOutput(true);
+      connection.setRequestProperty("User-Agent", userAgent);
+      connection.setRequestProperty("Accept", acceptedResponseContentType);
+      connection.setRequestProperty("Accept-Encoding", "gzip,deflate");
+      connection.setRequestProperty("X-HTTP-Method-Override", method.realVerb());
+      connection.setRequestProperty("Authorization", String.format("%s {%s}", client.usingOAuth() ? "Bearer" : "Basic", client.getSecret()));
+      for (String headerName : headers.keySet()) {
+        connection.setRequestProperty(headerName, headers.get(headerName));
+      }
+      if (hasWritingMethod() && (content != null || body != null)) {
+        connection.setRequestProperty("Content-Type", (contentType == null ? ContentTypeEnum.URL_ENCODED : contentType).toString());
+        if (body != null) {
+          writeToConnection(connection, body);
+        } else {
+          writeToConnection(connection, compressContent ? gzip(content) : content);
+        }
+      }
+      response = new Response(this);
+      return response;
+    } finally {
+      if (response == null) {
+        pool.release(connection, false);
+      } else if (!response.isStreaming()) {
+        pool.release(connection, true);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the request can safely be sent again, false otherwise.
+   * A {@code PATCH} request is only safe to send again when conditioned by an {@code If-Match} ETag, at least when retried.
+   * @return True if the request can safely be sent again, false otherwise.
+   */
+  private boolean isIdempotent() {
+    return method.isIdempotent() || method == HTTPMethodEnum.PATCH && (headers.containsKey("If-Match") || retryIfMatch != null);
+  }
+
+  /**
+   * Returns the number of times the request has been sent, retries included.
+   * @return Number of times the request has been sent, retries included.
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
   private boolean hasWritingMethod() {
     return method == HTTPMethodEnum.POST || method == HTTPMethodEnum.PATCH || method == HTTPMethodEnum.PUT;
   }
@@ -123,6 +281,33 @@ public class Request {
     }
   }
 
+  /**
+   * Streams the given body to the connection in chunks, compressing it on the fly if needed.
+   * @param connection Request connection.
+   * @param body Request body.
+   * @throws IOException If the body cannot be written.
+   */
+  private void writeToConnection(HttpURLConnection connection, RequestBody body) throws IOException {
+    connection.setChunkedStreamingMode(0);
+    OutputStream stream = new PayLoadOutputStream(connection.getOutputStream());
+    try {
+      if (compressContent) {
+        stream = new GZIPOutputStream(stream);
+      }
+      body.writeTo(stream);
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes a request body can carry.
+   * @return Maximum number of bytes a request body can carry.
+   */
+  public static int getMaxPayLoad() {
+    return maxPayLoad;
+  }
+
   /**
    * GZIPs the request content.
    */
@@ -131,6 +316,23 @@ public class Request {
     this.headers.put("Content-Encoding", "gzip");
   }
 
+  /**
+   * Returns true if the response body is to be streamed instead of being read eagerly, false otherwise.
+   * @return True if the response body is to be streamed instead of being read eagerly, false otherwise.
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Turns on/off the streaming of the response body.
+   * A streamed response body holds its connection until the {@link Response} reader is closed.
+   * @param streaming Streaming flag.
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
   /**
    * Returns the request {@link ContentTypeEnum}.
    * @return The request {@link ContentTypeEnum}.
@@ -161,6 +363,16 @@ public class Request {
    */
   public void setContent(byte[] content) {
     this.content = content;
+    this.body = null;
+  }
+
+  /**
+   * Sets the body to be streamed to the connection in place of the content to the given value.
+   * @param body Body value to be set.
+   */
+  public void setContent(RequestBody body) {
+    this.body = body;
+    this.content = null;
   }
 
   /**
@@ -195,6 +407,16 @@ public class Request {
     headers.put("If-Match", ifMatch.toString());
   }
 
+  /**
+   * Sets the {@code If-Match} header to be sent only when the request is retried.
+   * The first attempt is unconditional, whereas a retry fails with a precondition error
+   * instead of being applied twice if a previous attempt was applied but its response was lost.
+   * @param ifMatch Request {@code If-Match} header value to be set on retries.
+   */
+  public void setRetryIfMatch(ETag ifMatch) {
+    this.retryIfMatch = ifMatch;
+  }
+
   /**
    * Returns the request {@code If-Range} header.
    * @return the request {@code If-Range} header.
@@ -232,7 +454,7 @@ public class Request {
    * @return the request {@code If-Modified-Since} header.
    */
   public Date getIfModifiedSince() {
-    return InternetDateFormat.parseCalendar(headers.get("If-Modified-Since")).getTime();
+    return DateUtil.parseDate(headers.get("If-Modified-Since"));
   }
 
   /**
@@ -240,8 +462,7 @@ public class Request {
    * @param ifModifiedSince Request {@code If-Modified-Since} header value to be set.
    */
   public void setIfModifiedSince(Date ifModifiedSince) {
-    calendar.setTime(ifModifiedSince);
-    headers.put("If-Modified-Since", InternetDateFormat.toString(calendar));
+    headers.put("If-Modified-Since", DateUtil.formatDate(ifModifiedSince));
   }
 
   /**
@@ -249,7 +470,7 @@ public class Request {
    * @return the request {@code If-Unmodified-Since} header.
    */
   public Date getIfUnmodifiedSince() {
-    return InternetDateFormat.parseCalendar(headers.get("If-Unmodified-Since")).getTime();
+    return DateUtil.parseDate(headers.get("If-Unmodified-Since"));
   }
 
   /**
@@ -257,8 +478,7 @@ public class Request {
    * @param ifUnmodifiedSince Request {@code If-Unmodified-Since} header value to be set.
    */
   public void setIfUnmodifiedSince(Date ifUnmodifiedSince) {
-    calendar.setTime(ifUnmodifiedSince);
-    headers.put("If-Unmodified-Since", InternetDateFormat.toString(calendar));
+    headers.put("If-Unmodified-Since", DateUtil.formatDate(ifUnmodifiedSince));
   }
 
   /**
@@ -277,6 +497,14 @@ public class Request {
     return uri;
   }
 
+  /**
+   * Returns the API client sending the request.
+   * @return The API client sending the request.
+   */
+  public AbstractClient<?, ?, ?> getClient() {
+    return client;
+  }
+
   /**
    * Returns the request inner connection object.
    * @return The request inner connection object.
@@ -284,4 +512,35 @@ public class Request {
   public HttpURLConnection getConnection() {
     return connection;
   }
+
+  /**
+   * Represents a request body stream refusing to carry more than the maximum payload.
+   */
+  private static class PayLoadOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    private PayLoadOutputStream(OutputStream output) {
+      super(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      count(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      count(length);
+      out.write(buffer, offset, length);
+    }
+
+    private void count(int length) {
+      count += length;
+      if (count > maxPayLoad) {
+        throw new RuntimeException("Request contents cannot represent a payload of more than 500kB");
+      }
+    }
+  }
 }
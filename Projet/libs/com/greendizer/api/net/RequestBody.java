@@ -0,0 +1,19 @@
+package com.greendizer.api.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Represents a request body written straight to the connection instead of being held in memory.
+ * A body may be written several times if the request is retried.
+ */
+public interface RequestBody {
+
+  /**
+   * Writes the body to the given stream, which must be left open.
+   * @param output Stream to write to.
+   * @throws IOException If the output cannot be written.
+   */
+  void writeTo(OutputStream output) throws IOException;
+}
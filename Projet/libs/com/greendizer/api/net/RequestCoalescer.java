@@ -0,0 +1,167 @@
+package com.greendizer.api.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.greendizer.api.client.APIException;
+
+
+/**
+ * Represents a single-flight deduplication of identical requests sent at the same time.
+ * The first caller of a given key sends the request, the callers arriving while it is in flight wait for it
+ * and share its {@link Response}. A request sent after the flight has landed is sent again.
+ */
+public class RequestCoalescer {
+
+  private final HashMap<String, Flight> flights;
+  private volatile boolean enabled;
+  private long coalesced;
+
+  /**
+   * Creates an enabled request coalescer.
+   */
+  public RequestCoalescer() {
+    this.flights = new HashMap<String, Flight>();
+    this.enabled = true;
+  }
+
+  /**
+   * Sends the request identified by the given key, or waits for the identical one already in flight.
+   * @param key Key identifying the request.
+   * @param sender Callable actually sending the request.
+   * @return The received HTTP response, shared with the other callers of the same flight.
+   * @throws IOException If a connection error occurred.
+   * @throws APIException If a not acceptable HTTP status code is received.
+   */
+  public Response coalesce(String key, Callable<Response> sender) throws IOException, APIException {
+    if (!enabled) {
+      return call(sender);
+    }
+    Flight flight;
+    boolean leader = false;
+    synchronized (flights) {
+      flight = flights.get(key);
+      if (flight == null) {
+        flight = new Flight(sender);
+        flights.put(key, flight);
+        leader = true;
+      } else {
+        flight.waiters++;
+        coalesced++;
+      }
+    }
+    if (leader) {
+      try {
+        flight.task.run();
+      } finally {
+        synchronized (flights) {
+          flights.remove(key);
+        }
+      }
+    }
+    try {
+      return flight.task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for an identical request");
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the number of callers currently waiting for the request in flight with the given key.
+   * @param key Key identifying the request.
+   * @return Number of callers currently waiting for the request in flight with the given key.
+   */
+  public int getWaiters(String key) {
+    synchronized (flights) {
+      Flight flight = flights.get(key);
+      return flight == null ? 0 : flight.waiters;
+    }
+  }
+
+  /**
+   * Returns the number of waiting callers of each request in flight.
+   * @return Number of waiting callers of each request in flight, referenced by the request keys.
+   */
+  public Map<String, Integer> getWaiters() {
+    HashMap<String, Integer> waiters = new HashMap<String, Integer>();
+    synchronized (flights) {
+      for (Map.Entry<String, Flight> entry : flights.entrySet()) {
+        waiters.put(entry.getKey(), entry.getValue().waiters);
+      }
+    }
+    return waiters;
+  }
+
+  /**
+   * Returns the number of requests which have not been sent thanks to an identical one in flight.
+   * @return Number of requests which have not been sent thanks to an identical one in flight.
+   */
+  public long getCoalesced() {
+    synchronized (flights) {
+      return coalesced;
+    }
+  }
+
+  /**
+   * Returns true if identical requests are coalesced, false otherwise.
+   * @return True if identical requests are coalesced, false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Turns on/off the coalescing of identical requests.
+   * A caller joining a flight may receive a response sent before its own previous modifications were applied,
+   * turning coalescing off guarantees every caller its own request.
+   * @param enabled Coalescing flag.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  private static Response call(Callable<Response> sender) throws IOException, APIException {
+    try {
+      return sender.call();
+    } catch (Exception e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static IOException rethrow(Throwable cause) throws APIException {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    if (cause instanceof APIException) {
+      throw (APIException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new RuntimeException(cause);
+  }
+
+  /**
+   * Represents a request in flight along with the number of callers waiting for it.
+   */
+  private static class Flight {
+
+    private final FutureTask<Response> task;
+    private int waiters;
+
+    private Flight(Callable<Response> sender) {
+      this.task = new FutureTask<Response>(sender);
+    }
+  }
+}
@@ -1,13 +1,18 @@
 package com.greendizer.api.net;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.util.Date;
-//import java.util.zip.DeflaterInputStream;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import com.greendizer.api.resource.LocationEnum;
 import com.greendizer.api.util.DateUtil;
@@ -18,13 +23,19 @@ import com.greendizer.api.util.DateUtil;
 public class Response {
 
   private Request request;
+  private int code;
   private StatusCodeEnum statusCode;
   private String message;
   private String content;
   private ETag etag;
   private String location;
   private Date date;
+  private long retryAfter;
   private ContentRange contentRange;
+  private BodyInputStream body;
+  private String contentEncoding;
+  private CountingInputStream compressed;
+  private CountingInputStream decompressed;
 
   /**
    * Creates an HTTP response based on the corresponding original request.
@@ -34,38 +45,119 @@ public class Response {
   public Response(Request request) throws IOException {
     HttpURLConnection connection = request.getConnection();
     this.request = request;
-    this.statusCode = StatusCodeEnum.parse(connection.getResponseCode());
+    this.code = connection.getResponseCode();
+    this.statusCode = StatusCodeEnum.parse(code);
     this.message = connection.getResponseMessage();
     this.etag = connection.getHeaderField("ETag") == null ? null : ETag.parse(connection.getHeaderField("ETag"));
     this.location = connection.getHeaderField("Location");
     this.date = connection.getHeaderField("Date") == null ? null : DateUtil.parseDate(connection.getHeaderField("Date"));
     this.contentRange = connection.getHeaderField("Content-Range") == null ? null : ContentRange.parse(connection.getHeaderField("Content-Range"));
-    this.content = readConnectionContents(connection);
+    this.retryAfter = parseRetryAfter(connection.getHeaderField("Retry-After"));
+    InputStream input = openConnectionStream(connection);
+    if (request.isStreaming() && !isError() && input != null) {
+      this.body = new BodyInputStream(input, connection, request.getClient().getConnectionPool());
+    } else {
+      this.content = readConnectionContents(input, connection.getContentLength());
+    }
   }
 
-  private static String readConnectionContents(HttpURLConnection connection) throws IOException {
-    BufferedReader reader = null;
+  /**
+   * Opens the response body stream, decoding it according to its {@code Content-Encoding} header.
+   * @param connection Response connection.
+   * @return The decoded response body stream, {@code null} if there is none.
+   * @throws IOException If the response body cannot be read.
+   */
+  private InputStream openConnectionStream(HttpURLConnection connection) throws IOException {
     InputStream input = null;
     try {
       input = connection.getInputStream();
     } catch (Exception e) {
       input = connection.getErrorStream();
     }
-    /*String contentEncoding = connection.getHeaderField("Content-Encoding");
-    if (contentEncoding != null && "gzip".equals(contentEncoding.toLowerCase())) {
-      input = new GZIPInputStream(input);
-    } else if (contentEncoding != null && "deflate".equals(contentEncoding.toLowerCase())) {
-      input = new DeflaterInputStream(input);
-    }*/
-    reader = new BufferedReader(new InputStreamReader(input));
-    String line = "";
-    StringBuffer buffer = new StringBuffer();
-    while ((line = reader.readLine()) != null) {
-      buffer.append(line);
+    if (input == null) {
+      return null;
+    }
+    compressed = new CountingInputStream(input);
+    input = compressed;
+    String encoding = connection.getHeaderField("Content-Encoding");
+    contentEncoding = encoding == null ? null : encoding.trim().toLowerCase();
+    if ("gzip".equals(contentEncoding) || "deflate".equals(contentEncoding)) {
+      BufferedInputStream buffered = new BufferedInputStream(input);
+      buffered.mark(2);
+      int first = buffered.read();
+      int second = buffered.read();
+      buffered.reset();
+      if (first == -1) {
+        input = buffered;
+      } else if ("gzip".equals(contentEncoding)) {
+        input = new GZIPInputStream(buffered);
+      } else {
+        // Servers disagree on "deflate": accept both zlib-wrapped and raw streams.
+        boolean zlib = second != -1 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+        input = new InflaterInputStream(buffered, new Inflater(!zlib));
+      }
+    }
+    decompressed = new CountingInputStream(input);
+    return decompressed;
+  }
+
+  /**
+   * Parses the {@code Retry-After} header, given either as a number of seconds or as an HTTP date.
+   * @param value Header value.
+   * @return Delay in milliseconds, -1 if there is none or it cannot be parsed.
+   */
+  private long parseRetryAfter(String value) {
+    if (value == null) {
+      return -1;
+    }
+    value = value.trim();
+    try {
+      return Math.max(0, Long.parseLong(value) * 1000);
+    } catch (NumberFormatException e) {
+      try {
+        long now = date == null ? System.currentTimeMillis() : date.getTime();
+        return Math.max(0, DateUtil.parseDate(value).getTime() - now);
+      } catch (RuntimeException re) {
+        return -1;
+      }
+    }
+  }
+
+  private static String readConnectionContents(InputStream input, int length) throws IOException {
+    if (input == null) {
+      return "";
+    }
+    Reader reader = new InputStreamReader(input, "UTF-8");
+    try {
+      char[] chunk = new char[4096];
+      StringBuffer buffer = new StringBuffer(length > 0 ? length : chunk.length);
+      int count;
+      while ((count = reader.read(chunk)) != -1) {
+        buffer.append(chunk, 0, count);
+      }
+      return buffer.toString();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Closes the streamed response body if it has not been handed out, giving the connection back to the pool.
+   * @throws IOException If the connection cannot be closed.
+   */
+  public void close() throws IOException {
+    if (body != null) {
+      body.close();
+      body = null;
     }
-    reader.close();
-    input.close();
-    return buffer.toString();
+  }
+
+  /**
+   * Returns the delay in milliseconds requested by the server before retrying, -1 if none.
+   * @return Delay in milliseconds requested by the server before retrying, -1 if none.
+   */
+  public long getRetryAfter() {
+    return retryAfter;
   }
 
   /**
@@ -84,6 +176,31 @@ public class Response {
     return statusCode;
   }
 
+  /**
+   * Returns the raw response status code, also known when it has no {@link StatusCodeEnum}.
+   * @return The raw response status code.
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * Returns true if the response reports a server error, false otherwise.
+   * Falls back on the raw status code when it has no {@link StatusCodeEnum}.
+   * @return True if the response reports a server error, false otherwise.
+   */
+  public boolean isError() {
+    return statusCode == null ? code >= 500 : statusCode.isError();
+  }
+
+  /**
+   * Returns true if the response means the server is overloaded or throttling the client, false otherwise.
+   * @return True if the response means the server is overloaded or throttling the client, false otherwise.
+   */
+  public boolean isOverloaded() {
+    return statusCode != null && statusCode.isOverloaded();
+  }
+
   /**
    * Returns the response status message.
    * @return The response status message.
@@ -94,12 +211,78 @@ public class Response {
 
   /**
    * Returns the response content string.
+   * A streamed response body is fully read the first time this method is called.
    * @return The response content string.
+   * @throws IOException If the streamed response body cannot be read.
    */
-  public String getContent() {
+  public String getContent() throws IOException {
+    if (content == null && body != null) {
+      content = readConnectionContents(body, -1);
+      body = null;
+    }
     return content;
   }
 
+  /**
+   * Returns true if the response body is streamed from the connection, false if it has been read eagerly.
+   * @return True if the response body is streamed from the connection, false if it has been read eagerly.
+   */
+  public boolean isStreaming() {
+    return body != null;
+  }
+
+  /**
+   * Returns the response body as a byte stream.
+   * The stream must be closed once read so that the connection can be reused.
+   * @return The response body as a byte stream.
+   * @throws IOException If the response body cannot be read.
+   */
+  public InputStream getInputStream() throws IOException {
+    if (body != null) {
+      InputStream stream = body;
+      body = null;
+      return stream;
+    }
+    return new ByteArrayInputStream(content == null ? new byte[0] : content.getBytes("UTF-8"));
+  }
+
+  /**
+   * Returns the response body as a character stream to be handed to a parser.
+   * The reader must be closed once read so that the connection can be reused.
+   * @return The response body as a character stream.
+   * @throws IOException If the response body cannot be read.
+   */
+  public Reader getReader() throws IOException {
+    if (body != null) {
+      return new InputStreamReader(getInputStream(), "UTF-8");
+    }
+    return new StringReader(content == null ? "" : content);
+  }
+
+  /**
+   * Returns the response content encoding, {@code null} if the body is not encoded.
+   * @return The response content encoding, {@code null} if the body is not encoded.
+   */
+  public String getContentEncoding() {
+    return contentEncoding;
+  }
+
+  /**
+   * Returns the number of body bytes read so far from the network, before decoding.
+   * @return Number of body bytes read so far from the network, before decoding.
+   */
+  public long getCompressedLength() {
+    return compressed == null ? 0 : compressed.count;
+  }
+
+  /**
+   * Returns the number of body bytes read so far, after decoding.
+   * @return Number of body bytes read so far, after decoding.
+   */
+  public long getDecompressedLength() {
+    return decompressed == null ? 0 : decompressed.count;
+  }
+
   /**
    * Returns the response {@link ETag}.
    * @return The response {@link ETag}.
@@ -131,4 +314,115 @@ public class Response {
   public ContentRange getContentRange() {
     return contentRange;
   }
+
+  /**
+   * Represents a streamed response body which gives its connection back to the pool once closed.
+   */
+  private static class BodyInputStream extends FilterInputStream {
+
+    private static final int maxDrain = 8192;
+    private final HttpURLConnection connection;
+    private final ConnectionPool pool;
+    private boolean exhausted;
+    private boolean closed;
+
+    private BodyInputStream(InputStream input, HttpURLConnection connection, ConnectionPool pool) {
+      super(input);
+      this.connection = connection;
+      this.pool = pool;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      exhausted = b == -1;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int count = super.read(buffer, offset, length);
+      exhausted = count == -1;
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        drain();
+        super.close();
+      } finally {
+        pool.release(connection, exhausted);
+      }
+    }
+
+    /**
+     * Reads what is left of a small or empty body, such as the one of a {@code 304} revalidation,
+     * so that the connection can be kept alive. A larger remainder is left unread and the connection dropped.
+     */
+    private void drain() {
+      if (exhausted) {
+        return;
+      }
+      try {
+        byte[] buffer = new byte[512];
+        int drained = 0;
+        while (drained <= maxDrain) {
+          int count = read(buffer, 0, buffer.length);
+          if (count == -1) {
+            return;
+          }
+          drained += count;
+        }
+      } catch (IOException e) {
+        exhausted = false;
+      }
+    }
+  }
+
+  /**
+   * Represents a byte stream keeping count of the bytes read through it.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    private CountingInputStream(InputStream input) {
+      super(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
 }
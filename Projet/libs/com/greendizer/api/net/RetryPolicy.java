@@ -0,0 +1,171 @@
+package com.greendizer.api.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+
+/**
+ * Represents the policy of an API client for retrying the requests which failed transiently.
+ * Requests are retried after an exponentially growing delay with full jitter, or the delay requested by the
+ * server through the {@code Retry-After} header. Retries are drawn from a budget refilled by a fraction of every
+ * request, so that a failing server is not flooded with retries.
+ */
+public class RetryPolicy {
+
+  private static final int defaultMaxAttempts = 3;
+  private static final long defaultBaseDelay = 200;
+  private static final long defaultMaxDelay = 10000;
+  private static final double defaultBudgetRatio = 0.1;
+  private static final int defaultMaxBudget = 10;
+  private final int maxAttempts;
+  private final long baseDelay;
+  private final long maxDelay;
+  private final double budgetRatio;
+  private final int maxBudget;
+  private final Random random;
+  private double budget;
+  private long retries;
+  private long exhausted;
+
+  /**
+   * Creates a retry policy with the default settings.
+   */
+  public RetryPolicy() {
+    this(defaultMaxAttempts, defaultBaseDelay, defaultMaxDelay, defaultBudgetRatio, defaultMaxBudget);
+  }
+
+  /**
+   * Creates a retry policy.
+   * @param maxAttempts Maximum number of attempts of a request, including the first one.
+   * @param baseDelay Delay in milliseconds before the first retry, doubled for every following one.
+   * @param maxDelay Maximum delay in milliseconds before a retry, including the ones requested by the server.
+   * @param budgetRatio Fraction of a retry earned by every request.
+   * @param maxBudget Maximum number of retries which can be saved up.
+   */
+  public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, double budgetRatio, int maxBudget) {
+    if (maxAttempts < 1 || baseDelay < 0 || maxDelay < baseDelay || budgetRatio < 0 || maxBudget < 0) {
+      throw new IllegalArgumentException("Invalid retry policy settings");
+    }
+    this.maxAttempts = maxAttempts;
+    this.baseDelay = baseDelay;
+    this.maxDelay = maxDelay;
+    this.budgetRatio = budgetRatio;
+    this.maxBudget = maxBudget;
+    this.random = new Random();
+    this.budget = maxBudget;
+  }
+
+  /**
+   * Creates a retry policy which never retries.
+   * @return A retry policy which never retries.
+   */
+  public static RetryPolicy none() {
+    return new RetryPolicy(1, 0, 0, 0, 0);
+  }
+
+  /**
+   * Called once for every new request, earning a fraction of a retry.
+   */
+  public synchronized void onRequest() {
+    budget = Math.min(maxBudget, budget + budgetRatio);
+  }
+
+  /**
+   * Returns true if a request which failed with the given exception should be retried, false otherwise.
+   * Timeouts are retried, interruptions are not.
+   * @param attempt Number of attempts made so far.
+   * @param e Exception the last attempt failed with.
+   * @return True if the request should be retried, false otherwise.
+   */
+  public boolean shouldRetry(int attempt, IOException e) {
+    if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+      return false;
+    }
+    return withdraw(attempt);
+  }
+
+  /**
+   * Returns true if a request answered with the given response should be retried, false otherwise.
+   * Server errors, including the ones without a {@link StatusCodeEnum}, and throttling responses are retried.
+   * @param attempt Number of attempts made so far.
+   * @param response Response the last attempt was answered with.
+   * @return True if the request should be retried, false otherwise.
+   */
+  public boolean shouldRetry(int attempt, Response response) {
+    if (!response.isError() && !response.isOverloaded()) {
+      return false;
+    }
+    return withdraw(attempt);
+  }
+
+  /**
+   * Waits before retrying a request.
+   * @param attempt Number of attempts made so far.
+   * @param retryAfter Delay in milliseconds requested by the server, -1 if none.
+   * @throws InterruptedIOException If interrupted while waiting.
+   */
+  public void backoff(int attempt, long retryAfter) throws InterruptedIOException {
+    long delay;
+    if (retryAfter >= 0) {
+      delay = Math.min(retryAfter, maxDelay);
+    } else {
+      long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+      synchronized (random) {
+        delay = (long) (random.nextDouble() * ceiling);
+      }
+    }
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+  private synchronized boolean withdraw(int attempt) {
+    if (attempt >= maxAttempts) {
+      return false;
+    }
+    if (budget < 1) {
+      exhausted++;
+      return false;
+    }
+    budget--;
+    retries++;
+    return true;
+  }
+
+  /**
+   * Returns the maximum number of attempts of a request, including the first one.
+   * @return Maximum number of attempts of a request, including the first one.
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Returns the number of retries currently available.
+   * @return Number of retries currently available.
+   */
+  public synchronized double getBudget() {
+    return budget;
+  }
+
+  /**
+   * Returns the number of retries made so far.
+   * @return Number of retries made so far.
+   */
+  public synchronized long getRetries() {
+    return retries;
+  }
+
+  /**
+   * Returns the number of retries given up because the budget was exhausted.
+   * @return Number of retries given up because the budget was exhausted.
+   */
+  public synchronized long getExhausted() {
+    return exhausted;
+  }
+}
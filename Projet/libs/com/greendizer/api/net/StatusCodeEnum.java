@@ -17,8 +17,13 @@ public enum StatusCodeEnum {
   ACCEPTED                          (HttpURLConnection.HTTP_ACCEPTED),
   BAD_REQUEST                       (HttpURLConnection.HTTP_BAD_REQUEST),
   NOT_FOUND                         (HttpURLConnection.HTTP_NOT_FOUND),
+  PRECONDITION_FAILED               (HttpURLConnection.HTTP_PRECON_FAILED),
   UNAUTHORIZED                      (HttpURLConnection.HTTP_UNAUTHORIZED),
-  INTERNAL_ERROR                    (HttpURLConnection.HTTP_INTERNAL_ERROR)
+  TOO_MANY_REQUESTS                 (429),
+  INTERNAL_ERROR                    (HttpURLConnection.HTTP_INTERNAL_ERROR),
+  BAD_GATEWAY                       (HttpURLConnection.HTTP_BAD_GATEWAY),
+  SERVICE_UNAVAILABLE               (HttpURLConnection.HTTP_UNAVAILABLE),
+  GATEWAY_TIMEOUT                   (HttpURLConnection.HTTP_GATEWAY_TIMEOUT)
   ;
 
   private final int code;
@@ -43,6 +48,14 @@ public enum StatusCodeEnum {
     return code >= 500;
   }
 
+  /**
+   * Returns true if the code means the server is overloaded or throttling the client, false otherwise.
+   * @return True if the code means the server is overloaded or throttling the client, false otherwise.
+   */
+  public boolean isOverloaded() {
+    return this == TOO_MANY_REQUESTS || this == SERVICE_UNAVAILABLE;
+  }
+
   /**
    * Creates a {@code StatusCodeEnum} based on an integer status code.
    * @param code Integer status code.
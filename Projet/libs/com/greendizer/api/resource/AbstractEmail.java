@@ -1,5 +1,12 @@
 package com.greendizer.api.resource;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
@@ -7,11 +14,13 @@ import org.json.simple.parser.ParseException;
 import com.greendizer.api.client.APIException;
 import com.greendizer.api.client.AbstractClient;
 import com.greendizer.api.client.BuyerClient;
+import com.greendizer.api.client.Callback;
 import com.greendizer.api.dal.EntryPoint;
 import com.greendizer.api.net.ContentTypeEnum;
 import com.greendizer.api.net.ETag;
 import com.greendizer.api.net.HTTPMethodEnum;
 import com.greendizer.api.net.Request;
+import com.greendizer.api.net.RequestBody;
 import com.greendizer.api.net.Response;
 import com.greendizer.api.net.StatusCodeEnum;
 import com.greendizer.api.resource.seller.InvoiceReport;
@@ -53,13 +62,13 @@ public abstract class AbstractEmail<InvoiceType extends AbstractInvoice> extends
   }
 
   /**
-   * Refreshes the email properties with the given ETag and content.
+   * Refreshes the email properties with the given ETag and parsed content.
    * @param etag ETag to refresh with.
-   * @param content Content to refresh with.
+   * @param map Parsed content to refresh with, {@code null} if there is none.
    */
   @Override
-  public void refresh(ETag etag, String content) {
-    super.refresh(etag, content);
+  public void refresh(ETag etag, JSONObject map) {
+    super.refresh(etag, map);
     if (invoices == null) {
       invoices = new InvoiceEntryPoint(getClient(), String.format("%s/invoices", getURI()));
     }
@@ -134,13 +143,102 @@ public abstract class AbstractEmail<InvoiceType extends AbstractInvoice> extends
      * @return {@link InvoiceReport} received from the server.
      */
     public InvoiceReport send(String xmli) {
+      try {
+        return send(xmli.getBytes("UTF8"), null);
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot save resource", e);
+      }
+    }
+
+    /**
+     * Sends the given XMLiBuilder to the server, streaming its XMLi straight to the connection.
+     * @param builder XMLiBuilder to be sent.
+     * @return {@link InvoiceReport} received from the server.
+     */
+    public InvoiceReport send(final XMLiBuilder builder) {
+      return send(null, new RequestBody() {
+        public void writeTo(OutputStream output) throws IOException {
+          builder.writeTo(output);
+        }
+      });
+    }
+
+    /**
+     * Sends the given XMLiBuilder to the server in as many batches as the maximum request payload requires,
+     * using as many parallel requests as the client connection pool allows per host.
+     * @param builder XMLiBuilder to be sent.
+     * @return Outcome of the sending, batch by batch.
+     * @see #sendAll(XMLiBuilder, int)
+     */
+    public BatchReport sendAll(XMLiBuilder builder) {
+      return sendAll(builder, getClient().getConnectionPool().getMaxConnectionsPerHost());
+    }
+
+    /**
+     * Sends the given XMLiBuilder to the server in as many batches as the maximum request payload requires.
+     * The invoices are split in order into batches whose uncompressed XMLi fits in the payload, so that they
+     * also fit once compressed. The batches are streamed to the server, at most {@code concurrency} at a time.
+     * A failure does not stop the sending of the other batches.
+     * @param builder XMLiBuilder to be sent.
+     * @param concurrency Maximum number of simultaneous requests.
+     * @return Outcome of the sending, batch by batch.
+     */
+    public BatchReport sendAll(XMLiBuilder builder, int concurrency) {
+      if (builder == null) {
+        throw new NullPointerException("Builder should not be null");
+      }
+      if (concurrency < 1) {
+        throw new IllegalArgumentException("Concurrency must be positive");
+      }
+      List<XMLiBuilder> batches = builder.split(Request.getMaxPayLoad());
+      final BatchReport result = new BatchReport(batches);
+      final Semaphore slots = new Semaphore(concurrency);
+      ExecutorService executor = getClient().newExecutor(Math.max(1, Math.min(concurrency, batches.size())));
+      try {
+        for (int i = 0; i < batches.size(); i++) {
+          final int index = i;
+          final XMLiBuilder batch = batches.get(i);
+          slots.acquire();
+          executor.execute(new Runnable() {
+            public void run() {
+              try {
+                result.setReport(index, send(batch));
+              } catch (Exception e) {
+                result.setFailure(index, e);
+              } finally {
+                slots.release();
+              }
+            }
+          });
+        }
+        slots.acquire(concurrency);
+        return result;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while sending invoices", e);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    /**
+     * Sends the given XMLi flow to the server, either as bytes or as a streamed body.
+     * @param xmli XMLi flow to be sent, {@code null} if streamed.
+     * @param body XMLi body to be streamed, {@code null} if given as bytes.
+     * @return {@link InvoiceReport} received from the server.
+     */
+    private InvoiceReport send(byte[] xmli, RequestBody body) {
       if (getClient() instanceof BuyerClient) {
         throw new UnsupportedOperationException();
       }
       try {
         Request request = new Request(getClient(), HTTPMethodEnum.POST, getURI());
         request.setContentType(ContentTypeEnum.XMLi);
-        request.setContent(xmli.getBytes("UTF8"));
+        if (body != null) {
+          request.setContent(body);
+        } else {
+          request.setContent(xmli);
+        }
         Response response = request.getResponse();
         if (response.getStatusCode() == StatusCodeEnum.ACCEPTED) {
           InvoiceReport report = new InvoiceReport(getClient(), AbstractEmail.this.getURI(), URIUtil.extractId(response.getLocation()), false);
@@ -155,12 +253,31 @@ public abstract class AbstractEmail<InvoiceType extends AbstractInvoice> extends
     }
 
     /**
-     * Sends the given XMLiBuilder to the server.
+     * Sends the given XMLi flow to the server on the executor of the client.
+     * @param xmli XMLi flow to be sent.
+     * @param callback Callback to be notified with the {@link InvoiceReport} received from the server, {@code null} if none.
+     * @return A future of the {@link InvoiceReport} received from the server, which can be cancelled.
+     */
+    public Future<InvoiceReport> sendAsync(final String xmli, Callback<? super InvoiceReport> callback) {
+      return getClient().submit(new Callable<InvoiceReport>() {
+        public InvoiceReport call() {
+          return send(xmli);
+        }
+      }, callback);
+    }
+
+    /**
+     * Sends the given XMLiBuilder to the server on the executor of the client.
      * @param builder XMLiBuilder to be sent.
-     * @return {@link InvoiceReport} received from the server.
+     * @param callback Callback to be notified with the {@link InvoiceReport} received from the server, {@code null} if none.
+     * @return A future of the {@link InvoiceReport} received from the server, which can be cancelled.
      */
-    public InvoiceReport send(XMLiBuilder builder) {
-      return send(builder.toString());
+    public Future<InvoiceReport> sendAsync(final XMLiBuilder builder, Callback<? super InvoiceReport> callback) {
+      return getClient().submit(new Callable<InvoiceReport>() {
+        public InvoiceReport call() {
+          return send(builder);
+        }
+      }, callback);
     }
   }
 }
@@ -38,71 +38,60 @@ public abstract class AbstractInvoice extends AbstractResource {
   }
 
   /**
-   * Serializes the invoice data to be sent to the server.
+   * Serializes the modified invoice data to be sent to the server.
    * @return The serialized string representation of the invoice to be sent to the server.
    */
   @Override
   protected String serialize() {
     StringBuffer buffer = new StringBuffer();
-    if (hasProperty("name")) {
-      buffer.append("name=");
-      buffer.append(getName());
+    if (isDirty("name")) {
+      appendParameter(buffer, "name", getName());
     }
-    if (hasProperty("description")) {
-      buffer.append("&description=");
-      buffer.append(getDescription());
+    if (isDirty("description")) {
+      appendParameter(buffer, "description", getDescription());
     }
-    if (hasProperty("date")) {
-      buffer.append("&date=");
-      buffer.append(getDate().getTime());
+    if (isDirty("date") && hasProperty("date")) {
+      appendParameter(buffer, "date", getDate().getTime());
     }
-    if (hasProperty("dueDate")) {
-      buffer.append("&dueDate=");
-      buffer.append(getDueDate().getTime());
+    if (isDirty("dueDate") && hasProperty("dueDate")) {
+      appendParameter(buffer, "dueDate", getDueDate().getTime());
     }
-    if (hasProperty("currency")) {
-      buffer.append("&currency=");
-      buffer.append(getCurrency());
+    if (isDirty("currency")) {
+      appendParameter(buffer, "currency", getCurrency());
     }
-    if (hasProperty("total")) {
-      buffer.append("&total=");
-      buffer.append(getTotal());
+    if (isDirty("total")) {
+      appendParameter(buffer, "total", getTotal());
     }
-    if (hasProperty("location")) {
-      buffer.append("&location=");
-      buffer.append(getLocation());
+    if (isDirty("location")) {
+      appendParameter(buffer, "location", getLocation());
     }
-    if (hasProperty("read")) {
-      buffer.append("&read=");
-      buffer.append(isRead());
+    if (isDirty("read")) {
+      appendParameter(buffer, "read", isRead());
     }
-    if (hasProperty("flagged")) {
-      buffer.append("&flagged=");
-      buffer.append(isFlagged());
+    if (isDirty("flagged")) {
+      appendParameter(buffer, "flagged", isFlagged());
     }
-    if (hasProperty("paid")) {
-      buffer.append("&paid=");
-      buffer.append(isPaid());
+    if (isDirty("paid")) {
+      appendParameter(buffer, "paid", isPaid());
     }
-    if (hasProperty("payable")) {
-      buffer.append("&payable=");
-      buffer.append(isPayable());
+    if (isDirty("payable")) {
+      appendParameter(buffer, "payable", isPayable());
     }
-    if (hasProperty("tags")) {
-      buffer.append("&tags=");
+    if (isDirty("tags") && hasProperty("tags")) {
+      StringBuffer tags = new StringBuffer();
       for (String tag : getTags()) {
-        buffer.append(tag);
-        buffer.append(",");
+        if (tags.length() > 0) {
+          tags.append(",");
+        }
+        tags.append(tag);
       }
-      buffer.deleteCharAt(buffer.length() - 1);
+      appendParameter(buffer, "tags", tags);
     }
-    if (hasProperty("style")) {
-      buffer.append("&style=");
-      buffer.append(getStyle());
+    if (isDirty("style")) {
+      appendParameter(buffer, "style", getStyle());
     }
-    if (hasProperty("body")) {
-      buffer.append("&body=");
-      buffer.append(getBody());
+    if (isDirty("body")) {
+      appendParameter(buffer, "body", getBody());
     }
     return buffer.toString();
   }
@@ -1,9 +1,15 @@
 package com.greendizer.api.resource;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 import org.json.simple.JSONObject;
@@ -14,6 +20,7 @@ import android.util.Log;
 
 import com.greendizer.api.client.AbstractClient;
 import com.greendizer.api.client.APIException;
+import com.greendizer.api.client.Callback;
 import com.greendizer.api.net.ContentTypeEnum;
 import com.greendizer.api.net.ETag;
 import com.greendizer.api.net.HTTPMethodEnum;
@@ -27,15 +34,20 @@ import com.greendizer.api.xmli.CurrencyEnum;
 
 /**
  * Base resource object.
+ * Properties which have never been loaded are fetched lazily from the server, at most once per resource version.
+ * Resources are safe to share between threads, no lock is held while waiting for the server.
  */
 public abstract class AbstractResource {
 
-  protected static JSONParser parser;
   private final AbstractClient<?, ?, ?> client;
-  private ResourceId id;
-  private Date lastModified;
-  private Boolean deleted;
+  private volatile ResourceId id;
+  private volatile Date lastModified;
+  private volatile boolean deleted;
   private HashMap<String, Object> properties;
+  private HashSet<String> dirty;
+  private volatile Set<String> projection;
+  private JSONObject deserializing;
+  private boolean complete;
 
   /**
    * Creates a resource with the base API client, its id and a boolean flag of initial populating from server.
@@ -44,12 +56,10 @@ public abstract class AbstractResource {
    * @param populate Initial populating flag.
    */
   public AbstractResource(AbstractClient<?, ?, ?> client, ResourceId id, boolean populate) {
-    if (parser == null) {
-      parser = new JSONParser();
-    }
     this.client = client;
     this.deleted = false;
     this.properties = new HashMap<String, Object>();
+    this.dirty = new HashSet<String>();
     this.id = id;
     if (populate && id != null) {
       this.lastModified = new Date();
@@ -88,16 +98,6 @@ public abstract class AbstractResource {
    */
   protected abstract String serialize();
 
-  /**
-   * Deserialises data received from the server and fills the resource properties.
-   * @param content Data received from the server.
-   * @throws ParseException If an error occurred while parsing the data.
-   */
-  private void deserialize(String content) throws ParseException {
-    JSONObject map = (JSONObject) parser.parse(content);
-    deserialize(map);
-  }
-
   /**
    * Deserialises data received from the server and fills the resource properties.
    * @param map Raw parsed data from server to be fully qualified.
@@ -112,45 +112,119 @@ public abstract class AbstractResource {
   public abstract String getURI();
 
   /**
-   * Returns true if the resource has the given property, false otherwise.
+   * Returns true if the resource has a value for the given property, false otherwise.
    * @param propertyName Property name to seek for.
-   * @return True if the resource has the given property, false otherwise.
+   * @return True if the resource has a value for the given property, false otherwise.
    */
   protected boolean hasProperty(String propertyName) {
+    return getPropertyState(propertyName) == PropertyStateEnum.LOADED_VALUE;
+  }
+
+  /**
+   * Returns the state of the given property, without fetching it.
+   * @param propertyName Property name to check against.
+   * @return The state of the given property.
+   */
+  public synchronized PropertyStateEnum getPropertyState(String propertyName) {
     if (deleted) {
       throw new IllegalStateException("Cannot access a deleted resource");
     }
-    return properties.containsKey(propertyName);
+    if (!properties.containsKey(propertyName)) {
+      return PropertyStateEnum.NEVER_LOADED;
+    }
+    return properties.get(propertyName) == null ? PropertyStateEnum.LOADED_NULL : PropertyStateEnum.LOADED_VALUE;
   }
 
   /**
    * Returns the value of the given property name, {@code null} otherwise.
+   * A property which has never been loaded is fetched from the server, unless the resource is not saved yet,
+   * its current version has already been fetched as a whole or the property is out of the projection.
    * @param propertyName Property name to get.
    * @return The value of the given property name, {@code null} otherwise.
    */
   protected Object getProperty(String propertyName) {
-    if (deleted) {
-      throw new IllegalStateException("Cannot access a deleted resource");
+    boolean fetch;
+    synchronized (this) {
+      if (deleted) {
+        throw new IllegalStateException("Cannot access a deleted resource");
+      }
+      Set<String> projection = this.projection;
+      fetch = !properties.containsKey(propertyName) && !complete && id != null && (projection == null || projection.contains(propertyName));
     }
-    if (!properties.containsKey(propertyName)) {
+    if (fetch) {
       refresh();
     }
-    return properties.get(propertyName);
+    synchronized (this) {
+      return properties.get(propertyName);
+    }
   }
 
   /**
    * Sets the given property to the given value.
+   * While deserializing, a {@code null} value of a property missing from the server data is ignored,
+   * so that the property remains unloaded instead of being known as {@code null},
+   * and a property modified but not saved yet keeps its local value.
+   * Otherwise the property is marked as modified if its value changes.
    * @param propertyName Property name to be set.
    * @param value Property value to be set.
    */
-  protected void setProperty(String propertyName, Object value) {
+  protected synchronized void setProperty(String propertyName, Object value) {
     if (deleted) {
       throw new IllegalStateException("Cannot modify a deleted resource");
     }
-    if (value == null) {
+    if (deserializing != null) {
+      if (!dirty.contains(propertyName) && (value != null || deserializing.containsKey(propertyName))) {
+        properties.put(propertyName, value);
+      }
       return;
     }
-    properties.put(propertyName, value);
+    Object previous = properties.get(propertyName);
+    if (!properties.containsKey(propertyName) || (previous == null ? value != null : !previous.equals(value))) {
+      properties.put(propertyName, value);
+      dirty.add(propertyName);
+    }
+  }
+
+  /**
+   * Returns true if the given property has been modified since the resource was last loaded or saved, false otherwise.
+   * @param propertyName Property name to check against.
+   * @return True if the given property has been modified since the resource was last loaded or saved, false otherwise.
+   */
+  protected synchronized boolean isDirty(String propertyName) {
+    return dirty.contains(propertyName);
+  }
+
+  /**
+   * Returns true if the resource has modifications to be saved, false otherwise.
+   * @return True if the resource has modifications to be saved, false otherwise.
+   */
+  public synchronized boolean isModified() {
+    return !dirty.isEmpty();
+  }
+
+  /**
+   * Returns the names of the properties allowed to be fetched lazily, {@code null} if all of them are.
+   * @return Names of the properties allowed to be fetched lazily, {@code null} if all of them are.
+   */
+  public Set<String> getProjection() {
+    return projection == null ? null : Collections.unmodifiableSet(projection);
+  }
+
+  /**
+   * Restricts the properties allowed to be fetched lazily to the given ones.
+   * The other properties only return what has been loaded so far, such as the data of a collection page,
+   * and never cause a request to the server.
+   * @param propertyNames Names of the properties allowed to be fetched lazily, none to disable lazy fetching.
+   */
+  public void setProjection(String... propertyNames) {
+    this.projection = new HashSet<String>(Arrays.asList(propertyNames));
+  }
+
+  /**
+   * Allows all the properties to be fetched lazily.
+   */
+  public void clearProjection() {
+    this.projection = null;
   }
 
   /**
@@ -161,6 +235,9 @@ public abstract class AbstractResource {
       Request request = new Request(client, HTTPMethodEnum.GET, getURI());
       Response response = request.getResponse();
       refresh(response.getEtag(), response.getContent());
+      synchronized (this) {
+        complete = true;
+      }
     } catch (RuntimeException re) {
       throw re;
     } catch (Exception e) {
@@ -168,38 +245,105 @@ public abstract class AbstractResource {
     }
   }
 
+  /**
+   * Refreshes the resource properties from the server on the executor of the client.
+   * @param callback Callback to be notified once refreshed, {@code null} if none.
+   * @return A future of the refreshed resource, which can be cancelled.
+   */
+  public Future<AbstractResource> refreshAsync(Callback<? super AbstractResource> callback) {
+    return client.submit(new Callable<AbstractResource>() {
+      public AbstractResource call() {
+        refresh();
+        return AbstractResource.this;
+      }
+    }, callback);
+  }
+
   /**
    * Refreshes the resource properties with the given ETag and content.
    * @param etag ETag to refresh with.
    * @param content Content to refresh with.
    */
   public void refresh(ETag etag, String content) {
+    JSONObject map;
+    try {
+      map = content == null || content.equals("") ? null : (JSONObject) new JSONParser().parse(content);
+    } catch (Exception e) {
+      throw new RuntimeException("Cannot refresh resource", e);
+    }
+    refresh(etag, map);
+  }
+
+  /**
+   * Refreshes the resource properties with the given ETag and already parsed content.
+   * The content may be partial, the properties it does not contain are left untouched.
+   * @param etag ETag to refresh with.
+   * @param map Parsed content to refresh with, {@code null} if there is none.
+   */
+  public synchronized void refresh(ETag etag, JSONObject map) {
     try {
-      id = etag == null ? id : etag.getId();
-      lastModified = etag == null ? lastModified : etag.getLastModified();
-      if (content != null && !content.equals("")) {
-        deserialize(content);
+      if (etag != null) {
+        Date modified = etag.getLastModified();
+        if (modified == null ? lastModified != null : !modified.equals(lastModified)) {
+          complete = false;
+        }
+        id = etag.getId();
+        lastModified = modified;
+      }
+      if (map != null) {
+        deserializing = map;
+        deserialize(map);
       }
     } catch (Exception e) {
       throw new RuntimeException("Cannot refresh resource", e);
+    } finally {
+      deserializing = null;
     }
   }
 
   /**
    * Saves the resource on the server.
+   * An existing resource only sends its modified properties, and nothing at all if there are none.
+   * The update itself is unconditional, only its retries are conditioned on the known version.
    */
   public void save() {
+    boolean isNew = id == null;
     try {
-      boolean isNew = id == null;
+      String content;
+      HashMap<String, Object> saved = new HashMap<String, Object>();
+      synchronized (this) {
+        if (!isNew && dirty.isEmpty()) {
+          return;
+        }
+        content = serialize();
+        for (String name : dirty) {
+          saved.put(name, properties.get(name));
+        }
+      }
       Request request = isNew ?
         new Request(client, HTTPMethodEnum.POST, URIUtil.extractParentURI(getURI())) :
         new Request(client, HTTPMethodEnum.PATCH, getURI())
       ;
+      if (!isNew && lastModified != null) {
+        // Conditioning the retries on the known version makes them safe.
+        request.setRetryIfMatch(getETag());
+      }
       request.setContentType(getContentType());
-      request.setContent(serialize().getBytes("UTF8"));
+      request.setContent(content.getBytes("UTF8"));
       Response response = request.getResponse();
       if (isNew && response.getStatusCode() == StatusCodeEnum.CREATED || !isNew && response.getStatusCode() == StatusCodeEnum.NO_CONTENT) {
+        synchronized (this) {
+          dirty.removeAll(saved.keySet());
+        }
         refresh(response.getEtag(), response.getContent());
+      } else if (response.getStatusCode() == StatusCodeEnum.PRECONDITION_FAILED && request.getAttempts() > 1) {
+        // A previous attempt may have been applied before its response got lost.
+        Set<String> released = release(saved);
+        refresh();
+        if (!isSaved(saved)) {
+          restore(saved, released);
+          throw new APIException(response);
+        }
       } else {
         throw new APIException(response);
       }
@@ -208,6 +352,68 @@ public abstract class AbstractResource {
     }
   }
 
+  /**
+   * Unmarks the given properties still holding the given values, so that a refresh loads them from the server.
+   * @param values Property values.
+   * @return The names of the unmarked properties.
+   */
+  private synchronized Set<String> release(HashMap<String, Object> values) {
+    Set<String> released = new HashSet<String>();
+    for (String name : values.keySet()) {
+      Object value = values.get(name);
+      if (dirty.contains(name) && (value == null ? properties.get(name) == null : value.equals(properties.get(name)))) {
+        dirty.remove(name);
+        released.add(name);
+      }
+    }
+    return released;
+  }
+
+  /**
+   * Sets back the given properties to the given values and marks them as modified,
+   * unless they have been modified again in the meantime.
+   * @param values Property values.
+   * @param names Names of the properties to be restored.
+   */
+  private synchronized void restore(HashMap<String, Object> values, Set<String> names) {
+    for (String name : names) {
+      if (!dirty.contains(name)) {
+        properties.put(name, values.get(name));
+        dirty.add(name);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the resource holds the given property values, false otherwise.
+   * @param values Property values.
+   * @return True if the resource holds the given property values, false otherwise.
+   */
+  private synchronized boolean isSaved(HashMap<String, Object> values) {
+    for (String name : values.keySet()) {
+      Object value = values.get(name);
+      if (value == null ? properties.get(name) != null : !value.equals(properties.get(name))) {
+        return false;
+      }
+    }
+    dirty.removeAll(values.keySet());
+    return true;
+  }
+
+  /**
+   * Saves the resource on the server on the executor of the client.
+   * @param callback Callback to be notified once saved, {@code null} if none.
+   * @return A future of the saved resource, which can be cancelled.
+   */
+  public Future<AbstractResource> saveAsync(Callback<? super AbstractResource> callback) {
+    return client.submit(new Callable<AbstractResource>() {
+      public AbstractResource call() {
+        save();
+        return AbstractResource.this;
+      }
+    }, callback);
+  }
+
   /**
    * Deletes the resource on the server.
    */
@@ -265,6 +471,24 @@ public abstract class AbstractResource {
     return String.format("%s id: %s, last modified: %s, properties: ", className.substring(className.lastIndexOf(".") + 1), id, lastModified) + properties;
   }
 
+  /**
+   * Appends the given parameter to the given URL encoded buffer, unless its value is {@code null}.
+   * @param buffer Buffer to append the parameter to.
+   * @param name Parameter name.
+   * @param value Parameter value.
+   */
+  protected static void appendParameter(StringBuffer buffer, String name, Object value) {
+    if (value == null) {
+      return;
+    }
+    if (buffer.length() > 0) {
+      buffer.append('&');
+    }
+    buffer.append(name);
+    buffer.append('=');
+    buffer.append(value);
+  }
+
   /**
    * Parses the given property name in the JSON object map as a {@link String}.
    * @param map JSON object map.
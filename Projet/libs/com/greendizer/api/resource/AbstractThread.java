@@ -1,12 +1,15 @@
 package com.greendizer.api.resource;
 
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
 import com.greendizer.api.client.AbstractClient;
+import com.greendizer.api.client.Callback;
 import com.greendizer.api.dal.EntryPoint;
 import com.greendizer.api.net.ETag;
 
@@ -41,22 +44,19 @@ public abstract class AbstractThread<MessageType extends AbstractMessage> extend
   }
 
   /**
-   * Serializes the thread data to be sent to the server.
+   * Serializes the modified thread data to be sent to the server.
    * @return The serialized string representation of the thread to be sent to the server.
    */
   protected String serialize() {
     StringBuffer buffer = new StringBuffer();
-    if (hasProperty("location")) {
-      buffer.append("location=");
-      buffer.append(getLocation());
+    if (isDirty("location")) {
+      appendParameter(buffer, "location", getLocation());
     }
-    if (hasProperty("read")) {
-      buffer.append("&read=");
-      buffer.append(isRead());
+    if (isDirty("read")) {
+      appendParameter(buffer, "read", isRead());
     }
-    if (hasProperty("flagged")) {
-      buffer.append("&flagged=");
-      buffer.append(isFlagged());
+    if (isDirty("flagged")) {
+      appendParameter(buffer, "flagged", isFlagged());
     }
     return buffer.toString();
   }
@@ -76,13 +76,13 @@ public abstract class AbstractThread<MessageType extends AbstractMessage> extend
   }
 
   /**
-   * Refreshes the thread properties with the given ETag and content.
+   * Refreshes the thread properties with the given ETag and parsed content.
    * @param etag ETag to refresh with.
-   * @param content Content to refresh with.
+   * @param map Parsed content to refresh with, {@code null} if there is none.
    */
   @Override
-  public void refresh(ETag etag, String content) {
-    super.refresh(etag, content);
+  public void refresh(ETag etag, JSONObject map) {
+    super.refresh(etag, map);
     if (messages == null) {
       messages = new MessageEntryPoint(getClient(), String.format("%s/messages", getURI()));
     }
@@ -224,5 +224,19 @@ public abstract class AbstractThread<MessageType extends AbstractMessage> extend
       message.save();
       return message;
     }
+
+    /**
+     * Sends a new created message with the given text to the server on the executor of the client.
+     * @param text Message text.
+     * @param callback Callback to be notified with the new created message, {@code null} if none.
+     * @return A future of the new created message, which can be cancelled.
+     */
+    public Future<MessageType> sendAsync(final String text, Callback<? super MessageType> callback) {
+      return getClient().submit(new Callable<MessageType>() {
+        public MessageType call() {
+          return send(text);
+        }
+      }, callback);
+    }
   }
 }
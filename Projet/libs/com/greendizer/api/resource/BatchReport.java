@@ -0,0 +1,105 @@
+package com.greendizer.api.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.greendizer.api.resource.seller.InvoiceReport;
+import com.greendizer.api.xmli.XMLiBuilder;
+
+
+/**
+ * Represents the outcome of sending invoices in several batches, batch by batch.
+ */
+public class BatchReport {
+
+  private final XMLiBuilder[] batches;
+  private final InvoiceReport[] reports;
+  private final Exception[] failures;
+
+  /**
+   * Creates an empty outcome of the given batches.
+   * @param batches Batches the invoices have been split into.
+   */
+  BatchReport(List<XMLiBuilder> batches) {
+    this.batches = batches.toArray(new XMLiBuilder[batches.size()]);
+    this.reports = new InvoiceReport[batches.size()];
+    this.failures = new Exception[batches.size()];
+  }
+
+  synchronized void setReport(int index, InvoiceReport report) {
+    reports[index] = report;
+  }
+
+  synchronized void setFailure(int index, Exception e) {
+    failures[index] = e;
+  }
+
+  /**
+   * Returns the number of batches the invoices have been split into.
+   * @return Number of batches the invoices have been split into.
+   */
+  public int getSize() {
+    return batches.length;
+  }
+
+  /**
+   * Returns the batches the invoices have been split into, in order.
+   * @return The batches the invoices have been split into, in order.
+   */
+  public List<XMLiBuilder> getBatches() {
+    return Collections.unmodifiableList(Arrays.asList(batches));
+  }
+
+  /**
+   * Returns the reports of the batches which have been accepted by the server, in order.
+   * @return The reports of the batches which have been accepted by the server, in order.
+   */
+  public synchronized List<InvoiceReport> getReports() {
+    List<InvoiceReport> accepted = new ArrayList<InvoiceReport>();
+    for (InvoiceReport report : reports) {
+      if (report != null) {
+        accepted.add(report);
+      }
+    }
+    return Collections.unmodifiableList(accepted);
+  }
+
+  /**
+   * Returns the batches which could not be sent along with the cause of their failure.
+   * @return The batches which could not be sent along with the cause of their failure.
+   */
+  public synchronized Map<XMLiBuilder, Exception> getFailed() {
+    Map<XMLiBuilder, Exception> failed = new LinkedHashMap<XMLiBuilder, Exception>();
+    for (int i = 0; i < failures.length; i++) {
+      if (failures[i] != null) {
+        failed.put(batches[i], failures[i]);
+      }
+    }
+    return Collections.unmodifiableMap(failed);
+  }
+
+  /**
+   * Returns true if all the batches have been accepted by the server, false otherwise.
+   * @return True if all the batches have been accepted by the server, false otherwise.
+   */
+  public synchronized boolean isSuccessful() {
+    for (InvoiceReport report : reports) {
+      if (report == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns a string representation of the outcome.
+   */
+  public synchronized String toString() {
+    int accepted = getReports().size();
+    return String.format("%d batches, %d accepted, %d failed", batches.length, accepted, getFailed().size());
+  }
+}
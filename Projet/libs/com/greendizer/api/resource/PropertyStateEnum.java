@@ -0,0 +1,24 @@
+package com.greendizer.api.resource;
+
+
+/**
+ * Represents an enumeration of the states of a resource property.
+ */
+public enum PropertyStateEnum {
+
+  /**
+   * The property has not been received from the server nor set yet.
+   */
+  NEVER_LOADED,
+
+  /**
+   * The property is known to be {@code null}.
+   */
+  LOADED_NULL,
+
+  /**
+   * The property is known to have a value.
+   */
+  LOADED_VALUE,
+  ;
+}
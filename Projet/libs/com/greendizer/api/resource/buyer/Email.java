@@ -1,5 +1,7 @@
 package com.greendizer.api.resource.buyer;
 
+import org.json.simple.JSONObject;
+
 import com.greendizer.api.client.AbstractClient;
 import com.greendizer.api.dal.EntryPoint;
 import com.greendizer.api.net.ETag;
@@ -42,13 +44,13 @@ public class Email extends AbstractEmail<Invoice> {
   }
 
   /**
-   * Refreshes the email properties with the given ETag and content.
+   * Refreshes the email properties with the given ETag and parsed content.
    * @param etag ETag to refresh with.
-   * @param content Content to refresh with.
+   * @param map Parsed content to refresh with, {@code null} if there is none.
    */
   @Override
-  public void refresh(ETag etag, String content) {
-    super.refresh(etag, content);
+  public void refresh(ETag etag, JSONObject map) {
+    super.refresh(etag, map);
     if (threads == null) {
       threads = new ThreadEntryPoint(getClient(), String.format("%s/threads", getURI()));
     }
@@ -42,7 +42,7 @@ public class Invoice extends AbstractInvoice {
   @Override
   protected void deserialize(JSONObject map) throws ParseException {
     super.deserialize(map);
-    setProperty("buyer", new Buyer(map.get("buyer").toString()));
+    setProperty("buyer", new Buyer((JSONObject) map.get("buyer")));
   }
 
   public Buyer getBuyer() {
@@ -53,16 +53,15 @@ public class Invoice extends AbstractInvoice {
 
     private HashMap<String, Object> properties;
 
-    private Buyer(String content) throws ParseException {
-      JSONObject map = (JSONObject) parser.parse(content);
+    private Buyer(JSONObject map) {
       properties = new HashMap<String, Object>();
       properties.put("uri", parseString(map, "uri"));
       properties.put("name", parseString(map, "name"));
       properties.put("email", parseString(map, "email"));
-      properties.put("address", new Address(parseString(map, "address")));
-      String deliveryAdressJSON = parseString(map, "delivery");
-      if (deliveryAdressJSON != null) {
-        properties.put("delivery", new Address(deliveryAdressJSON));
+      properties.put("address", new Address((JSONObject) map.get("address")));
+      JSONObject deliveryAddress = (JSONObject) map.get("delivery");
+      if (deliveryAddress != null) {
+        properties.put("delivery", new Address(deliveryAddress));
       }
     }
 
@@ -94,8 +93,7 @@ public class Invoice extends AbstractInvoice {
 
       private HashMap<String, Object> properties;
 
-      private Address(String content)  throws ParseException {
-        JSONObject map = (JSONObject) parser.parse(content);
+      private Address(JSONObject map) {
         properties = new HashMap<String, Object>();
         properties.put("number", parseString(map, "number"));
         properties.put("street", parseString(map, "street"));
@@ -66,7 +66,7 @@ public final class DateUtil {
    *           formats
    */
   public static Date parseDate(String dateValue) {
-    return parseDate(dateValue, null, null);
+    return HTTPDateCodec.parse(dateValue);
   }
 
   /**
@@ -148,7 +148,7 @@ public final class DateUtil {
    * @see #PATTERN_RFC1123
    */
   public static String formatDate(Date date) {
-    return formatDate(date, PATTERN_RFC1123);
+    return HTTPDateCodec.format(date);
   }
 
   /**
@@ -0,0 +1,189 @@
+package com.greendizer.api.util;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * An immutable and thread-safe codec of HTTP dates.
+ * Dates in the preferred RFC 1123 format are parsed and formatted without any {@code SimpleDateFormat},
+ * the other formats accepted by {@link DateUtil} are delegated to it.
+ * As the same header values repeat for a whole second, the last formatted date and the recently parsed
+ * strings are cached. Dates before the year 1600, subject to the Julian calendar, are delegated as well.
+ */
+public final class HTTPDateCodec {
+
+  private static final int cacheSize = 16;
+  private static final int minYear = 1600;
+  private static final String[] dayNames = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
+  private static final String[] monthNames = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+  private static final AtomicReferenceArray<Entry> parsed = new AtomicReferenceArray<Entry>(cacheSize);
+  private static volatile Entry formatted;
+
+  /**
+   * This class should not be instantiated.
+   */
+  private HTTPDateCodec() {
+  }
+
+  /**
+   * Parses an HTTP date in any of the formats accepted by {@link DateUtil#parseDate(String)}.
+   * @param value HTTP date to parse.
+   * @return The parsed date.
+   */
+  public static Date parse(String value) {
+    if (value == null) {
+      throw new IllegalArgumentException("dateValue is null");
+    }
+    int slot = value.hashCode() & (cacheSize - 1);
+    Entry entry = parsed.get(slot);
+    if (entry != null && entry.text.equals(value)) {
+      return new Date(entry.time);
+    }
+    long time = parseRFC1123(value);
+    Date date = time == Long.MIN_VALUE ? DateUtil.parseDate(value, null, null) : new Date(time);
+    parsed.set(slot, new Entry(value, date.getTime()));
+    return date;
+  }
+
+  /**
+   * Formats the given date according to the RFC 1123 format.
+   * @param date The date to format.
+   * @return An RFC 1123 formatted date string.
+   */
+  public static String format(Date date) {
+    if (date == null) {
+      throw new IllegalArgumentException("date is null");
+    }
+    long seconds = floorDiv(date.getTime(), 1000);
+    Entry entry = formatted;
+    if (entry != null && entry.time == seconds) {
+      return entry.text;
+    }
+    long days = floorDiv(seconds, 86400);
+    int secondOfDay = (int) (seconds - days * 86400);
+    long[] civil = civilFromDays(days);
+    if (civil[0] < minYear || civil[0] > 9999) {
+      return DateUtil.formatDate(date, DateUtil.PATTERN_RFC1123);
+    }
+    StringBuilder builder = new StringBuilder(29);
+    builder.append(dayNames[(int) floorMod(days + 4, 7)]).append(", ");
+    appendDigits(builder, (int) civil[2], 2);
+    builder.append(' ').append(monthNames[(int) civil[1] - 1]).append(' ');
+    appendDigits(builder, (int) civil[0], 4);
+    builder.append(' ');
+    appendDigits(builder, secondOfDay / 3600, 2);
+    builder.append(':');
+    appendDigits(builder, secondOfDay / 60 % 60, 2);
+    builder.append(':');
+    appendDigits(builder, secondOfDay % 60, 2);
+    builder.append(" GMT");
+    String text = builder.toString();
+    formatted = new Entry(text, seconds);
+    return text;
+  }
+
+  /**
+   * Parses an RFC 1123 date such as {@code Sun, 06 Nov 1994 08:49:37 GMT}.
+   * @param value Date to parse.
+   * @return Number of milliseconds since the epoch, {@code Long.MIN_VALUE} if the date is not in the RFC 1123 format.
+   */
+  private static long parseRFC1123(String value) {
+    if (value.length() != 29 || value.charAt(3) != ',' || value.charAt(4) != ' ' || value.charAt(7) != ' '
+      || value.charAt(11) != ' ' || value.charAt(16) != ' ' || value.charAt(19) != ':' || value.charAt(22) != ':'
+      || !value.endsWith(" GMT") || indexOf(dayNames, value, 0) < 0) {
+      return Long.MIN_VALUE;
+    }
+    int day = parseDigits(value, 5, 2);
+    int month = indexOf(monthNames, value, 8) + 1;
+    int year = parseDigits(value, 12, 4);
+    int hour = parseDigits(value, 17, 2);
+    int minute = parseDigits(value, 20, 2);
+    int second = parseDigits(value, 23, 2);
+    if (day < 1 || month < 1 || year < minYear || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return Long.MIN_VALUE;
+    }
+    long days = daysFromCivil(year, month, day);
+    if (civilFromDays(days)[2] != day) {
+      return Long.MIN_VALUE;
+    }
+    return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+  }
+
+  private static int indexOf(String[] names, String value, int offset) {
+    for (int i = 0; i < names.length; i++) {
+      if (value.regionMatches(offset, names[i], 0, 3)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int parseDigits(String value, int offset, int length) {
+    int result = 0;
+    for (int i = offset; i < offset + length; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + c - '0';
+    }
+    return result;
+  }
+
+  private static void appendDigits(StringBuilder builder, int value, int length) {
+    for (int divisor = length == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+      builder.append((char) ('0' + value / divisor % 10));
+    }
+  }
+
+  /**
+   * Returns the number of days since the epoch of the given proleptic Gregorian date.
+   */
+  private static long daysFromCivil(long year, int month, int day) {
+    year -= month <= 2 ? 1 : 0;
+    long era = floorDiv(year, 400);
+    long yearOfEra = year - era * 400;
+    long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * Returns the year, month and day of the proleptic Gregorian date the given number of days after the epoch.
+   */
+  private static long[] civilFromDays(long days) {
+    days += 719468;
+    long era = floorDiv(days, 146097);
+    long dayOfEra = days - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    return new long[] { yearOfEra + era * 400 + (month <= 2 ? 1 : 0), month, day };
+  }
+
+  private static long floorDiv(long dividend, long divisor) {
+    long quotient = dividend / divisor;
+    return dividend % divisor < 0 ? quotient - 1 : quotient;
+  }
+
+  private static long floorMod(long dividend, long divisor) {
+    return dividend - floorDiv(dividend, divisor) * divisor;
+  }
+
+  /**
+   * Represents a cached date string along with its time.
+   */
+  private static class Entry {
+
+    private final String text;
+    private final long time;
+
+    private Entry(String text, long time) {
+      this.text = text;
+      this.time = time;
+    }
+  }
+}
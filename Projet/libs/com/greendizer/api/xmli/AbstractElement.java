@@ -1,5 +1,7 @@
 package com.greendizer.api.xmli;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -7,6 +9,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -16,15 +19,24 @@ import java.util.Vector;
 abstract class AbstractElement<ChildrenType extends AbstractElement<?>> {
 
   private static final String[] reservedNamespaces = new String[] { "gd" };
-  private static DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+  private static final ThreadLocal<DateFormat> dateFormat = new ThreadLocal<DateFormat>() {
+    @Override
+    protected DateFormat initialValue() {
+      return new SimpleDateFormat("yyyy-MM-dd");
+    }
+  };
   private List<ChildrenType> children;
+  private List<AbstractElement<?>> parents;
   private HashMap<XMLNamespace, HashMap<String, Object>> elements;
+  private volatile Total total;
+  private final AtomicLong version = new AtomicLong();
 
   /**
    * Creates a new element.
    */
   public AbstractElement() {
     this.children = new Vector<ChildrenType>();
+    this.parents = new Vector<AbstractElement<?>>();
     this.elements = new HashMap<XMLNamespace, HashMap<String,Object>>();
   }
 
@@ -34,6 +46,10 @@ abstract class AbstractElement<ChildrenType extends AbstractElement<?>> {
    */
   public void addChild(ChildrenType child) {
     children.add(child);
+    if (hasTotal()) {
+      ((AbstractElement<?>) child).parents.add(this);
+    }
+    invalidateTotal();
   }
 
   /**
@@ -41,11 +57,15 @@ abstract class AbstractElement<ChildrenType extends AbstractElement<?>> {
    * @param child Child to be removed from list.
    */
   public void removeChild(ChildrenType child) {
-    children.remove(child);
+    if (children.remove(child)) {
+      ((AbstractElement<?>) child).parents.remove(this);
+      invalidateTotal();
+    }
   }
 
   /**
    * Returns the list of children.
+   * Children added or removed through this list directly are not accounted for in the memoized totals.
    * @return The list of children.
    */
   public List<ChildrenType> getChildren() {
@@ -118,41 +138,133 @@ abstract class AbstractElement<ChildrenType extends AbstractElement<?>> {
   }
 
   /**
-   * Returns the total amount so far to the element level.
+   * Returns the total amount so far to the element level, rounded to the cent.
    * @return The total amount so far to the element level.
+   * @see #getMinorTotal(CurrencyEnum)
    */
   public Float getTotal() {
-    Float total = 0f;
-    for (ChildrenType child : children) {
-      total += child.getTotal();
+    return Money.toFloat(getMinorTotal(null), Money.getFractionDigits(null));
+  }
+
+  /**
+   * Returns the exact total amount so far to the element level in minor units of the given currency.
+   * The total is memoized until the element or one of its descendants changes.
+   * A total computed while a change happened is stored along with the version it has been computed for,
+   * so that it is never reused.
+   * @param currency Currency of the amount, {@code null} for cents.
+   * @return The total amount so far to the element level in minor units of the given currency.
+   */
+  public long getMinorTotal(CurrencyEnum currency) {
+    long revision = Treatment.getRevision();
+    long version = this.version.get();
+    Total cached = total;
+    if (cached != null && cached.currency == currency && cached.revision == revision && cached.version == version) {
+      return cached.value;
+    }
+    long value = computeMinorTotal(currency);
+    total = new Total(currency, revision, version, value);
+    return value;
+  }
+
+  /**
+   * Computes the total amount so far to the element level in minor units of the given currency.
+   * @param currency Currency of the amount, {@code null} for cents.
+   * @return The total amount so far to the element level in minor units of the given currency.
+   */
+  long computeMinorTotal(CurrencyEnum currency) {
+    long total = 0;
+    for (int i = 0; i < children.size(); i++) {
+      total += children.get(i).getMinorTotal(currency);
     }
     return total;
   }
 
+  /**
+   * Discards the memoized total of the element and of all its ancestors.
+   */
+  void invalidateTotal() {
+    version.incrementAndGet();
+    total = null;
+    for (int i = 0; i < parents.size(); i++) {
+      parents.get(i).invalidateTotal();
+    }
+  }
+
+  /**
+   * Returns true if the element has a total its children contribute to, false otherwise.
+   * @return True if the element has a total its children contribute to, false otherwise.
+   */
+  boolean hasTotal() {
+    return true;
+  }
+
   /**
    * Returns a formatted string of the given date.
+   * Each thread formats with a date format of its own, since {@code SimpleDateFormat} is not thread-safe.
    * @param date Date to be formatted.
    * @return Formatted string of the given date.
    */
   public static String formatDate(Date date) {
-    return dateFormat.format(date);
+    return dateFormat.get().format(date);
   }
 
   /**
-   * Returns an XML representation of the element.
+   * Writes the XML representation of the element with the given writer.
+   * @param writer XMLi writer.
+   * @throws IOException If the output cannot be written.
    */
-  public String toString() {
+  void write(XMLiWriter writer) throws IOException {
+    writeCustomElements(writer);
+  }
+
+  /**
+   * Writes the custom elements of the element with the given writer, nothing at all if there are none.
+   * @param writer XMLi writer.
+   * @throws IOException If the output cannot be written.
+   */
+  void writeCustomElements(XMLiWriter writer) throws IOException {
     if (elements.size() == 0) {
-      return "";
+      return;
     }
-    StringBuffer buffer = new StringBuffer();
-    buffer.append("<custom>");
+    writer.append("<custom>");
     for (XMLNamespace namespace : elements.keySet()) {
       for (String element : elements.get(namespace).keySet()) {
-        buffer.append(String.format("<%s:%s>%s</%s:%s>", namespace.getName(), element, elements.get(namespace).get(element), namespace.getName(), element));
+        writer.element(namespace.getName() + ":" + element, String.valueOf(elements.get(namespace).get(element)));
       }
     }
-    buffer.append("</custom>");
-    return buffer.toString();
+    writer.append("</custom>");
+  }
+
+  /**
+   * Represents a memoized total along with what it has been computed for.
+   */
+  private static class Total {
+
+    private final CurrencyEnum currency;
+    private final long revision;
+    private final long version;
+    private final long value;
+
+    private Total(CurrencyEnum currency, long revision, long version, long value) {
+      this.currency = currency;
+      this.revision = revision;
+      this.version = version;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Returns an XML representation of the element.
+   */
+  public String toString() {
+    StringWriter output = new StringWriter();
+    try {
+      XMLiWriter writer = new XMLiWriter(output);
+      write(writer);
+      writer.flush();
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot serialize element", e);
+    }
+    return output.toString();
   }
 }
@@ -12,15 +12,15 @@ public enum CurrencyEnum {
   ALL,
   AWG,
   GBP,
-  BHD,
+  BHD(3),
   BBD,
   BZD,
   BTN,
   BWP,
   BND,
-  BIF,
+  BIF(0),
   BDT,
-  BYR,
+  BYR(0),
   BMD,
   BOB,
   BRL,
@@ -28,20 +28,20 @@ public enum CurrencyEnum {
   CAD,
   KHR,
   KYD,
-  XAF,
+  XAF(0),
   COP,
   XCP,
   HRK,
   CZK,
   CNY,
   CVE,
-  XOF,
-  CLP,
-  KMF,
+  XOF(0),
+  CLP(0),
+  KMF(0),
   CRC,
   CUP,
   EUR,
-  DJF,
+  DJF(0),
   XCD,
   EGP,
   ERN,
@@ -55,7 +55,7 @@ public enum CurrencyEnum {
   HKD,
   INR,
   GHC,
-  GNF,
+  GNF(0),
   HTG,
   HUF,
   IRR,
@@ -66,18 +66,18 @@ public enum CurrencyEnum {
   GTQ,
   GYD,
   HNL,
-  ISK,
-  IQD,
-  JPY,
-  JOD,
+  ISK(0),
+  IQD(3),
+  JPY(0),
+  JOD(3),
   KES,
-  KWD,
+  KWD(3),
   LVL,
   LSL,
-  LYD,
+  LYD(3),
   JMD,
   KZT,
-  KRW,
+  KRW(0),
   LAK,
   LBP,
   LRD,
@@ -103,13 +103,13 @@ public enum CurrencyEnum {
   NGN,
   KPW,
   NOK,
-  OMR,
-  XPF,
+  OMR(3),
+  XPF(0),
   PKR,
   XPD,
   PAB,
   PGK,
-  PYG,
+  PYG(0),
   PEN,
   PHP,
   XPT,
@@ -117,7 +117,7 @@ public enum CurrencyEnum {
   QAR,
   RON,
   RUB,
-  RWF,
+  RWF(0),
   CHF,
   WST,
   STD,
@@ -144,16 +144,42 @@ public enum CurrencyEnum {
   TZS,
   TOP,
   TTD,
-  TND,
+  TND(3),
   AED,
-  UGX,
+  UGX(0),
   UAH,
   UYU,
-  VUV,
+  VUV(0),
   VEB,
-  VND,
+  VND(0),
   YER,
   ZMK,
   ZWD,
   ;
+
+  private final int fractionDigits;
+
+  /**
+   * Creates a currency whose minor unit is a hundredth.
+   */
+  private CurrencyEnum() {
+    this(2);
+  }
+
+  /**
+   * Creates a currency with the number of fraction digits of its minor unit.
+   * @param fractionDigits Number of fraction digits of the minor unit, as defined by ISO 4217.
+   */
+  private CurrencyEnum(int fractionDigits) {
+    this.fractionDigits = fractionDigits;
+  }
+
+  /**
+   * Returns the number of fraction digits of the currency minor unit, such as 2 for cents.
+   * Precious metals, which have no minor unit, are given two digits.
+   * @return Number of fraction digits of the currency minor unit.
+   */
+  public int getFractionDigits() {
+    return fractionDigits;
+  }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.greendizer.api.xmli;
 
+import java.io.IOException;
+
 
 /**
  * Represents an invoice body group.
@@ -42,20 +44,19 @@ public class Group extends AbstractElement<Line> {
   }
 
   /**
-   * Returns the XMLi representation of the group.
+   * Writes the XMLi representation of the group with the given writer.
    */
-  public String toString() {
-    StringBuffer buffer = new StringBuffer();
-    buffer.append(super.toString());
-    buffer.append(String.format("<name>%s</name>", name == null ? "" : name));
-    buffer.append(String.format("<description>%s</description>", description == null ? "" : description));
-    buffer.append("<lines>");
+  @Override
+  void write(XMLiWriter writer) throws IOException {
+    writeCustomElements(writer);
+    writer.element("name", name);
+    writer.element("description", description);
+    writer.append("<lines>");
     for (Line line : getChildren()) {
-      buffer.append("<line>");
-      buffer.append(line.toString());
-      buffer.append("</line>");
+      writer.append("<line>");
+      line.write(writer);
+      writer.append("</line>");
     }
-    buffer.append("</lines>");
-    return buffer.toString();
+    writer.append("</lines>");
   }
 }
@@ -1,5 +1,8 @@
 package com.greendizer.api.xmli;
 
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 /**
  * Represents an interval on which a treatment is applicable.
@@ -8,6 +11,11 @@ public class Interval {
 
   private Float lower;
   private Float upper;
+  private long lowerValue;
+  private int lowerScale;
+  private long upperValue;
+  private int upperScale;
+  private final AtomicInteger treatments = new AtomicInteger();
   
   /**
    * Creates an interval with lower and upper boundaries.
@@ -15,8 +23,8 @@ public class Interval {
    * @param upper Upper boundary.
    */
   public Interval(Float lower, Float upper) {
-    this.lower = lower;
-    this.upper = upper;
+    setLower(lower);
+    setUpper(upper);
   }
   
   /**
@@ -40,7 +48,13 @@ public class Interval {
    * @param lower Lower boundary value to be set.
    */
   public void setLower(Float lower) {
+    if (lower != null) {
+      BigDecimal decimal = Money.toDecimal(lower);
+      this.lowerValue = decimal.unscaledValue().longValue();
+      this.lowerScale = decimal.scale();
+    }
     this.lower = lower;
+    changed();
   }
 
   /**
@@ -56,7 +70,57 @@ public class Interval {
    * @param upper Upper boundary value to be set.
    */
   public void setUpper(Float upper) {
+    if (upper == null || upper == Float.MAX_VALUE) {
+      this.upperValue = Long.MAX_VALUE;
+      this.upperScale = 0;
+    } else {
+      BigDecimal decimal = Money.toDecimal(upper);
+      this.upperValue = decimal.unscaledValue().longValue();
+      this.upperScale = decimal.scale();
+    }
     this.upper = upper;
+    changed();
+  }
+
+  private void changed() {
+    if (treatments.get() > 0) {
+      Treatment.revise();
+    }
+  }
+
+  /**
+   * Counts one more treatment the interval is the base of.
+   */
+  void attach() {
+    treatments.incrementAndGet();
+  }
+
+  /**
+   * Counts one treatment less the interval is the base of.
+   */
+  void detach() {
+    treatments.decrementAndGet();
+  }
+
+  /**
+   * Returns the lower boundary of the interval in units of the given scale.
+   * @param scale Number of fraction digits of the units.
+   * @return The lower boundary of the interval in units of the given scale.
+   */
+  long getLower(int scale) {
+    if (lower == null) {
+      throw new NullPointerException("Lower boundary should not be null");
+    }
+    return Money.rescale(lowerValue, lowerScale, scale);
+  }
+
+  /**
+   * Returns the upper boundary of the interval in units of the given scale, {@code Long.MAX_VALUE} if there is none.
+   * @param scale Number of fraction digits of the units.
+   * @return The upper boundary of the interval in units of the given scale.
+   */
+  long getUpper(int scale) {
+    return upperValue == Long.MAX_VALUE ? Long.MAX_VALUE : Money.rescale(upperValue, upperScale, scale);
   }
   
   /**
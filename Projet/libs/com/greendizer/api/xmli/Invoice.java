@@ -1,5 +1,7 @@
 package com.greendizer.api.xmli;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Date;
 
 
@@ -219,34 +221,43 @@ public class Invoice extends AbstractElement<Group> {
   }
 
   /**
-   * Returns the XMLi representation of the invoice.
+   * Returns the total amount of the invoice, rounded to the minor unit of its currency.
+   * @return The total amount of the invoice.
+   * @see #getMinorTotal(CurrencyEnum)
    */
-  public String toString() {
-    StringBuffer buffer = new StringBuffer();
-    buffer.append(recipient.toString());
-    buffer.append(String.format("<name>%s</name>", name == null ? "" : name));
-    buffer.append(String.format("<description>%s</description>", description == null ? "" : description));
-    buffer.append(String.format("<customId>%s</customId>", customId == null ? "" : customId));
-    buffer.append(String.format("<date>%s</date>", date == null ? "" : formatDate(date)));
-    buffer.append(String.format("<dueDate>%s</dueDate>", dueDate == null ? "" : formatDate(dueDate)));
-    buffer.append(String.format("<total>%s</total>", getTotal()));
-    buffer.append(String.format("<currency>%s</currency>", currency == null ? "" : currency.name()));
-    buffer.append(String.format("<status>%s</status>", status == null ? "" : status.name().toLowerCase()));
-    buffer.append(String.format("<terms>%s</terms>", terms == null ? "" : terms));
-    buffer.append("<body");
+  @Override
+  public Float getTotal() {
+    return Money.toFloat(getMinorTotal(currency), Money.getFractionDigits(currency));
+  }
+
+  /**
+   * Writes the XMLi representation of the invoice with the given writer.
+   */
+  @Override
+  void write(XMLiWriter writer) throws IOException {
+    recipient.write(writer);
+    writer.element("name", name);
+    writer.element("description", description);
+    writer.element("customId", customId);
+    writer.element("date", date == null ? null : formatDate(date));
+    writer.element("dueDate", dueDate == null ? null : formatDate(dueDate));
+    writer.element("total", Money.format(getMinorTotal(currency), Money.getFractionDigits(currency)));
+    writer.element("currency", currency == null ? null : currency.name());
+    writer.element("status", status == null ? null : status.name().toLowerCase());
+    writer.element("terms", terms);
+    writer.append("<body");
     for (XMLNamespace namespace : getNamespaces()) {
-      buffer.append(String.format(" %s", namespace.toString()));
+      writer.append(" " + namespace.toString());
     }
-    buffer.append("><groups>");
+    writer.append("><groups>");
     for (Group group : getChildren()) {
-      buffer.append("<group>");
-      buffer.append(group.toString());
-      buffer.append("</group>");
+      writer.append("<group>");
+      group.write(writer);
+      writer.append("</group>");
     }
-    buffer.append("</groups>");
-    buffer.append(super.toString());
-    buffer.append("</body>");
-    return buffer.toString();
+    writer.append("</groups>");
+    writeCustomElements(writer);
+    writer.append("</body>");
   }
 
   /**
@@ -268,19 +279,19 @@ public class Invoice extends AbstractElement<Group> {
     }
 
     /**
-     * Returns the XMLi representation of the recipient.
+     * Writes the XMLi representation of the recipient with the given writer.
+     * @param writer XMLi writer.
+     * @throws IOException If the output cannot be written.
      */
-    public String toString() {
-      StringBuffer buffer = new StringBuffer();
-      buffer.append("<buyer>");
-      buffer.append(String.format("<email>%s</email>", email == null ? "" : email));
-      buffer.append(String.format("<name>%s</name>", name == null ? "" : name));
-      buffer.append(postalAddress.toString());
+    private void write(XMLiWriter writer) throws IOException {
+      writer.append("<buyer>");
+      writer.element("email", email);
+      writer.element("name", name);
+      postalAddress.write(writer);
       if (!deliveryAddress.isEmpty()) {
-        buffer.append(deliveryAddress.toString());
+        deliveryAddress.write(writer);
       }
-      buffer.append("</buyer>");
-      return buffer.toString();
+      writer.append("</buyer>");
     }
   }
 
@@ -421,16 +432,29 @@ public class Invoice extends AbstractElement<Group> {
      * Returns the XMLi representation of the invoice.
      */
     public String toString() {
-      StringBuffer buffer = new StringBuffer();
-      buffer.append(String.format("<%s>", tagName));
-      buffer.append(String.format("<number>%s</number>", number == null ? "" : number));
-      buffer.append(String.format("<street>%s</street>", street == null ? "" : street));
-      buffer.append(String.format("<other>%s</other>", other == null ? "" : other));
-      buffer.append(String.format("<zipcode>%s</zipcode>", zipcode == null ? "" : zipcode));
-      buffer.append(String.format("<city>%s</city>", city == null ? "" : city));
-      buffer.append(String.format("<country>%s</country>", country == null ? "" : country));
-      buffer.append(String.format("</%s>", tagName));
-      return buffer.toString();
+      StringWriter output = new StringWriter();
+      try {
+        write(new XMLiWriter(output));
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot serialize address", e);
+      }
+      return output.toString();
+    }
+
+    /**
+     * Writes the XMLi representation of the address with the given writer.
+     * @param writer XMLi writer.
+     * @throws IOException If the output cannot be written.
+     */
+    private void write(XMLiWriter writer) throws IOException {
+      writer.append("<" + tagName + ">");
+      writer.element("number", number);
+      writer.element("street", street);
+      writer.element("other", other);
+      writer.element("zipcode", zipcode);
+      writer.element("city", city);
+      writer.element("country", country);
+      writer.append("</" + tagName + ">");
     }
   }
 }
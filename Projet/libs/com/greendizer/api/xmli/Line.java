@@ -1,5 +1,7 @@
 package com.greendizer.api.xmli;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.Date;
 import java.util.List;
 import java.util.Vector;
@@ -15,6 +17,10 @@ public class Line extends AbstractElement<AbstractElement<?>> {
   private Date date;
   private Number quantity;
   private Number unitPrice;
+  private long quantityValue;
+  private int quantityScale;
+  private long unitPriceValue;
+  private int unitPriceScale;
   private String SSCC;
   private String GLN;
   private String TGIN;
@@ -93,7 +99,11 @@ public class Line extends AbstractElement<AbstractElement<?>> {
     if (quantity == null || quantity.floatValue() < 0.f) {
       throw new IllegalArgumentException("Quantity not valid.");
     }
+    BigDecimal decimal = Money.toDecimal(quantity);
     this.quantity = quantity;
+    this.quantityValue = decimal.unscaledValue().longValue();
+    this.quantityScale = decimal.scale();
+    invalidateTotal();
   }
 
   /**
@@ -112,7 +122,11 @@ public class Line extends AbstractElement<AbstractElement<?>> {
     if (unitPrice == null || unitPrice.floatValue() < 0.f) {
       throw new IllegalArgumentException("Unit price not valid.");
     }
+    BigDecimal decimal = Money.toDecimal(unitPrice);
     this.unitPrice = unitPrice;
+    this.unitPriceValue = decimal.unscaledValue().longValue();
+    this.unitPriceScale = decimal.scale();
+    invalidateTotal();
   }
 
   /**
@@ -169,6 +183,8 @@ public class Line extends AbstractElement<AbstractElement<?>> {
    */
   public void addTax(Tax tax) {
     taxes.add(tax);
+    tax.attach();
+    invalidateTotal();
   }
 
   /**
@@ -176,11 +192,15 @@ public class Line extends AbstractElement<AbstractElement<?>> {
    * @param tax Tax to be removed.
    */
   public void removeTax(Tax tax) {
-    taxes.remove(tax);
+    if (taxes.remove(tax)) {
+      tax.detach();
+      invalidateTotal();
+    }
   }
 
   /**
    * Returns the list of taxes.
+   * Taxes added or removed through this list directly are not accounted for in the memoized totals.
    * @return The list of taxes.
    */
   public List<Tax> getTaxes() {
@@ -193,6 +213,8 @@ public class Line extends AbstractElement<AbstractElement<?>> {
    */
   public void addDiscount(Discount discount) {
     discounts.add(discount);
+    discount.attach();
+    invalidateTotal();
   }
 
   /**
@@ -200,11 +222,15 @@ public class Line extends AbstractElement<AbstractElement<?>> {
    * @param discount Discount to be removed.
    */
   public void removeDiscount(Discount discount) {
-    discounts.remove(discount);
+    if (discounts.remove(discount)) {
+      discount.detach();
+      invalidateTotal();
+    }
   }
 
   /**
    * Returns the list of discounts.
+   * Discounts added or removed through this list directly are not accounted for in the memoized totals.
    * @return The list of discounts.
    */
   public List<Discount> getDiscounts() {
@@ -212,51 +238,63 @@ public class Line extends AbstractElement<AbstractElement<?>> {
   }
 
   /**
-   * Returns the total amount of the line.
-   * @return The total amount of the line.
+   * Computes the exact total amount of the line in minor units of the given currency.
+   * The gross amount is rounded to the minor unit, then every discount and tax is.
+   * @param currency Currency of the amount, {@code null} for cents.
+   * @return The total amount of the line in minor units of the given currency.
    */
-  public Float getTotal() {
-    Float gross = unitPrice.floatValue() * quantity.floatValue();
-    Float discountsAmount = 0f;
-    for (Discount discount : discounts) {
-      discountsAmount += discount.compute(gross);
+  @Override
+  long computeMinorTotal(CurrencyEnum currency) {
+    if (quantity == null || unitPrice == null) {
+      throw new NullPointerException("Quantity and unit price should not be null");
+    }
+    int scale = Money.getFractionDigits(currency);
+    long gross = Money.multiply(unitPriceValue, unitPriceScale, quantityValue, quantityScale, scale);
+    long discountsAmount = 0;
+    for (int i = 0; i < discounts.size(); i++) {
+      discountsAmount += discounts.get(i).compute(gross, scale);
     }
-    Float subtotal = Math.max(0, gross - discountsAmount);
-    Float taxesAmount = 0f;
-    for (Tax tax : taxes) {
-      taxesAmount += tax.compute(subtotal);
+    long subtotal = Math.max(0, gross - discountsAmount);
+    long taxesAmount = 0;
+    for (int i = 0; i < taxes.size(); i++) {
+      taxesAmount += taxes.get(i).compute(subtotal, scale);
     }
     return subtotal + taxesAmount;
   }
 
   /**
-   * Returns the XMLi representation of the line.
+   * Writes the XMLi representation of the line with the given writer.
    */
-  public String toString() {
-    StringBuffer buffer = new StringBuffer();
-    buffer.append(String.format("<name>%s</name>", name == null ? "" : name));
-    buffer.append(String.format("<description>%s</description>", description == null ? "" : description));
-    buffer.append(String.format("<date>%s</date>", date == null ? "" : formatDate(date)));
-    buffer.append(String.format("<quantity>%s</quantity>", quantity == null ? "" : quantity));
-    buffer.append(String.format("<unitPrice>%s</unitPrice>", unitPrice == null ? "" : unitPrice));
-    buffer.append(super.toString());
-    buffer.append(SSCC == null ? "" : String.format("<sscc>%s</sscc>", SSCC == null ? "" : SSCC));
-    buffer.append(GLN == null ? "" : String.format("<gln>%s</gln>", GLN == null ? "" : GLN));
-    buffer.append(TGIN == null ? "" : String.format("<tgin>%s</tgin>", TGIN == null ? "" : TGIN));
+  @Override
+  void write(XMLiWriter writer) throws IOException {
+    writer.element("name", name);
+    writer.element("description", description);
+    writer.element("date", date == null ? null : formatDate(date));
+    writer.element("quantity", quantity);
+    writer.element("unitPrice", unitPrice);
+    writeCustomElements(writer);
+    if (SSCC != null) {
+      writer.element("sscc", SSCC);
+    }
+    if (GLN != null) {
+      writer.element("gln", GLN);
+    }
+    if (TGIN != null) {
+      writer.element("tgin", TGIN);
+    }
     if (taxes.size() != 0) {
-      buffer.append("<taxes>");
+      writer.append("<taxes>");
       for (Tax tax : taxes) {
-        buffer.append(tax.toString());
+        tax.write(writer, "tax");
       }
-      buffer.append("</taxes>");
+      writer.append("</taxes>");
     }
     if (discounts.size() != 0) {
-      buffer.append("<discounts>");
+      writer.append("<discounts>");
       for (Discount discount : discounts) {
-        buffer.append(discount.toString());
+        discount.write(writer, "discount");
       }
-      buffer.append("</discounts>");
+      writer.append("</discounts>");
     }
-    return buffer.toString();
   }
 }
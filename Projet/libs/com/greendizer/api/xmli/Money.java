@@ -0,0 +1,142 @@
+package com.greendizer.api.xmli;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+
+/**
+ * A utility class for exact money arithmetic on fixed-point amounts.
+ * An amount is a {@code long} of units scaled by a power of ten, such as the minor units of a currency.
+ * Results are rounded half up, and only fall back to {@code BigDecimal} when a {@code long} would overflow.
+ */
+final class Money {
+
+  private static final int defaultFractionDigits = 2;
+  private static final long[] powersOfTen = new long[19];
+
+  static {
+    powersOfTen[0] = 1;
+    for (int i = 1; i < powersOfTen.length; i++) {
+      powersOfTen[i] = powersOfTen[i - 1] * 10;
+    }
+  }
+
+  private Money() {
+  }
+
+  /**
+   * Returns the number of fraction digits of the minor unit of the given currency.
+   * @param currency Currency, {@code null} if unknown.
+   * @return Number of fraction digits of the minor unit of the given currency, two if unknown.
+   */
+  static int getFractionDigits(CurrencyEnum currency) {
+    return currency == null ? defaultFractionDigits : currency.getFractionDigits();
+  }
+
+  /**
+   * Returns the exact decimal value of the given number, as written by its string representation.
+   * A {@code float} such as {@code 19.6f} thus stands for 19.6 rather than for its binary approximation.
+   * @param number Number to be converted.
+   * @return Exact decimal value of the given number, with an unscaled value fitting in a {@code long}.
+   * @throws IllegalArgumentException If the number is not finite or too precise to fit in a {@code long}.
+   */
+  static BigDecimal toDecimal(Number number) {
+    BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+    if (decimal.signum() == 0) {
+      return BigDecimal.ZERO;
+    }
+    decimal = decimal.stripTrailingZeros();
+    if (decimal.scale() < 0) {
+      decimal = decimal.setScale(0);
+    }
+    if (decimal.unscaledValue().bitLength() > 63 || decimal.scale() >= powersOfTen.length) {
+      throw new IllegalArgumentException(number + ": too precise to be computed exactly");
+    }
+    return decimal;
+  }
+
+  /**
+   * Converts the given number to units of the given scale.
+   * @param number Number to be converted.
+   * @param scale Number of fraction digits of the units.
+   * @return The given number in units of the given scale.
+   */
+  static long toUnits(Number number, int scale) {
+    BigDecimal decimal = toDecimal(number);
+    return rescale(decimal.unscaledValue().longValue(), decimal.scale(), scale);
+  }
+
+  /**
+   * Converts the given amount from one scale to another.
+   * @param value Amount in units of the original scale.
+   * @param from Number of fraction digits of the original scale.
+   * @param to Number of fraction digits of the target scale.
+   * @return The amount in units of the target scale.
+   * @throws ArithmeticException If the amount does not fit in a {@code long}.
+   */
+  static long rescale(long value, int from, int to) {
+    if (from == to || value == 0) {
+      return value;
+    }
+    if (from > to && from - to < powersOfTen.length) {
+      long divisor = powersOfTen[from - to];
+      long quotient = value / divisor;
+      long remainder = value % divisor;
+      if (Math.abs(remainder) >= divisor - Math.abs(remainder)) {
+        quotient += value < 0 ? -1 : 1;
+      }
+      return quotient;
+    }
+    if (from < to && to - from < powersOfTen.length) {
+      long multiplier = powersOfTen[to - from];
+      long result = value * multiplier;
+      if (result / multiplier == value) {
+        return result;
+      }
+    }
+    return new BigDecimal(BigInteger.valueOf(value), from).setScale(to, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  /**
+   * Multiplies two fixed-point amounts.
+   * @param a First amount.
+   * @param aScale Number of fraction digits of the first amount.
+   * @param b Second amount.
+   * @param bScale Number of fraction digits of the second amount.
+   * @param scale Number of fraction digits of the result.
+   * @return The product of the two amounts in units of the given scale.
+   * @throws ArithmeticException If the product does not fit in a {@code long}.
+   */
+  static long multiply(long a, int aScale, long b, int bScale, int scale) {
+    long product = a * b;
+    if (a == 0 || product / a == b && !(a == -1 && b == Long.MIN_VALUE)) {
+      return rescale(product, aScale + bScale, scale);
+    }
+    BigDecimal exact = new BigDecimal(BigInteger.valueOf(a), aScale).multiply(new BigDecimal(BigInteger.valueOf(b), bScale));
+    return exact.setScale(scale, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  /**
+   * Returns the {@code float} closest to the given amount.
+   * @param value Amount.
+   * @param scale Number of fraction digits of the amount.
+   * @return The {@code float} closest to the given amount.
+   */
+  static float toFloat(long value, int scale) {
+    if (scale < powersOfTen.length && Math.abs(value) < 1L << 24) {
+      return (float) value / powersOfTen[scale];
+    }
+    return new BigDecimal(BigInteger.valueOf(value), scale).floatValue();
+  }
+
+  /**
+   * Returns the plain decimal representation of the given amount, with all of its fraction digits.
+   * @param value Amount.
+   * @param scale Number of fraction digits of the amount.
+   * @return The plain decimal representation of the given amount.
+   */
+  static String format(long value, int scale) {
+    return new BigDecimal(BigInteger.valueOf(value), scale).toPlainString();
+  }
+}
@@ -1,16 +1,26 @@
 package com.greendizer.api.xmli;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 
 /**
  * Represents a calculation treatment applied on an invoice line (tax or discount).
  */
 public abstract class Treatment {
 
+  private static final AtomicLong revision = new AtomicLong();
   private String name;
   private String description;
   private Number rate;
+  private long rateValue;
+  private int rateScale;
   private Interval interval;
   private RateTypeEnum rateType;
+  private final AtomicInteger lines = new AtomicInteger();
 
   /**
    * Constructs a new treatment.
@@ -64,7 +74,13 @@ public abstract class Treatment {
    * @param rate Rate value to be set.
    */
   public void setRate(Number rate) {
+    if (rate != null) {
+      BigDecimal decimal = Money.toDecimal(rate);
+      this.rateValue = decimal.unscaledValue().longValue();
+      this.rateScale = decimal.scale();
+    }
     this.rate = rate;
+    changed();
   }
 
   /**
@@ -80,7 +96,54 @@ public abstract class Treatment {
    * @param interval Interval value to be set.
    */
   public void setInterval(Interval interval) {
+    if (this.interval != null) {
+      this.interval.detach();
+    }
+    if (interval != null) {
+      interval.attach();
+    }
     this.interval = interval;
+    changed();
+  }
+
+  /**
+   * Returns the revision of the treatments applied on lines, which changes whenever one of them does.
+   * Memoized totals computed at an older revision are stale.
+   * @return The revision of the treatments applied on lines.
+   */
+  static long getRevision() {
+    return revision.get();
+  }
+
+  /**
+   * Moves to a new revision of the treatments if this one is applied on a line.
+   * Treatments can be shared by any number of lines, which they do not know of.
+   */
+  void changed() {
+    if (lines.get() > 0) {
+      revise();
+    }
+  }
+
+  /**
+   * Moves to a new revision of the treatments.
+   */
+  static void revise() {
+    revision.incrementAndGet();
+  }
+
+  /**
+   * Counts one more line the treatment is applied on.
+   */
+  void attach() {
+    lines.incrementAndGet();
+  }
+
+  /**
+   * Counts one line less the treatment is applied on.
+   */
+  void detach() {
+    lines.decrementAndGet();
   }
 
   /**
@@ -97,27 +160,45 @@ public abstract class Treatment {
    */
   public void setRateType(RateTypeEnum rateType) {
     this.rateType = rateType;
+    changed();
   }
 
   /**
-   * Computes the treatment result based on the gross amount.
+   * Computes the treatment result based on the gross amount, rounded to the cent.
    * @param gross Base gross amount.
    * @return The treatment result based on the gross amount.
+   * @see #compute(long, int)
    */
   public Float compute(Float gross) {
-    if (gross == 0.f) {
-      return 0.f;
+    int scale = Money.getFractionDigits(null);
+    return Money.toFloat(compute(Money.toUnits(gross, scale), scale), scale);
+  }
+
+  /**
+   * Computes the exact treatment result based on the gross amount, both in units of the given scale
+   * such as the minor units of a currency. A percentage is rounded half up to the unit.
+   * @param gross Base gross amount in units of the given scale.
+   * @param scale Number of fraction digits of the units.
+   * @return The treatment result in units of the given scale.
+   */
+  public long compute(long gross, int scale) {
+    if (gross == 0) {
+      return 0;
+    }
+    if (rate == null) {
+      throw new NullPointerException("Rate should not be null");
     }
     if (rateType == RateTypeEnum.FIXED) {
-      return rate.floatValue();
+      return Money.rescale(rateValue, rateScale, scale);
     }
     if (interval == null) {
-      return gross * rate.floatValue() / 100;
+      return Money.multiply(gross, scale, rateValue, rateScale + 2, scale);
     }
-    if (gross > interval.getLower()) {
-      return (Math.min(gross, interval.getUpper()) - interval.getLower()) * rate.floatValue() / 100;
+    long lower = interval.getLower(scale);
+    if (gross > lower) {
+      return Money.multiply(Math.min(gross, interval.getUpper(scale)) - lower, scale, rateValue, rateScale + 2, scale);
     }
-    return 0f;
+    return 0;
   }
 
   /**
@@ -126,12 +207,27 @@ public abstract class Treatment {
    * @return The XMLi representation of the treatment.
    */
   protected String toString(String tagName) {
-    StringBuffer buffer = new StringBuffer();
-    buffer.append(String.format("<%s type=\"%s\"", tagName, rateType));
-    buffer.append(name == null ? "" : String.format(" name=\"%s\"", name));
-    buffer.append(description == null ? "" : String.format(" description=\"%s\"", description));
-    buffer.append(interval == null ? "" : String.format(" base=\"%s\"", interval));
-    buffer.append(String.format(">%s</%s>", rate, tagName));
-    return buffer.toString();
+    StringWriter output = new StringWriter();
+    try {
+      write(new XMLiWriter(output), tagName);
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot serialize treatment", e);
+    }
+    return output.toString();
+  }
+
+  /**
+   * Writes the XMLi representation of the treatment with the given writer.
+   * @param writer XMLi writer.
+   * @param tagName Actual treatment tag name.
+   * @throws IOException If the output cannot be written.
+   */
+  void write(XMLiWriter writer, String tagName) throws IOException {
+    writer.append("<" + tagName);
+    writer.attribute("type", String.valueOf(rateType));
+    writer.attribute("name", name);
+    writer.attribute("description", description);
+    writer.attribute("base", interval);
+    writer.append(">" + rate + "</" + tagName + ">");
   }
 }
@@ -1,6 +1,16 @@
 package com.greendizer.api.xmli;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 
 /**
@@ -9,6 +19,8 @@ import java.util.List;
 public class XMLiBuilder extends AbstractElement<Invoice> {
 
   private static final String version = "gd-xmli-1.0";
+  private static final int maxPendingSegments = 64;
+  private volatile Executor executor;
 
   /**
    * Inherited from {@link AbstractElement} but not supported.
@@ -17,6 +29,21 @@ public class XMLiBuilder extends AbstractElement<Invoice> {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Inherited from {@link AbstractElement} but not supported.
+   */
+  public long getMinorTotal(CurrencyEnum currency) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns false: invoices do not add up to a builder total.
+   */
+  @Override
+  boolean hasTotal() {
+    return false;
+  }
+
   /**
    * Inherited from {@link AbstractElement} but not supported.
    */
@@ -25,18 +52,165 @@ public class XMLiBuilder extends AbstractElement<Invoice> {
   }
 
   /**
-   * Returns the XMLi representation of builder.
+   * Writes the XMLi representation of the builder in UTF-8 to the given stream, which is left open.
+   * @param output Stream to write to.
+   * @throws IOException If the output cannot be written.
+   */
+  public void writeTo(OutputStream output) throws IOException {
+    XMLiWriter writer = new XMLiWriter(output);
+    if (executor == null) {
+      writer.write(this);
+    } else {
+      writeParallel(writer, output, executor);
+    }
+    writer.flush();
+  }
+
+  /**
+   * Renders the invoices into separate byte segments on the given executor, and writes them in order as they
+   * are ready. Invoices serialize independently, so the output is the same as the sequential one.
+   * At most a fixed number of segments are rendered ahead of the one being written.
+   * @param writer XMLi writer of the output.
+   * @param output Stream the segments are written to.
+   * @param executor Executor rendering the segments.
+   * @throws IOException If the output cannot be written or an invoice cannot be rendered.
+   */
+  private void writeParallel(XMLiWriter writer, OutputStream output, Executor executor) throws IOException {
+    writeHeader(writer);
+    writer.flush();
+    LinkedList<FutureTask<byte[]>> pending = new LinkedList<FutureTask<byte[]>>();
+    try {
+      for (final Invoice invoice : getChildren()) {
+        if (pending.size() == maxPendingSegments) {
+          output.write(pending.removeFirst().get());
+        }
+        FutureTask<byte[]> segment = new FutureTask<byte[]>(new Callable<byte[]>() {
+          public byte[] call() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            XMLiWriter segmentWriter = new XMLiWriter(buffer);
+            writeInvoice(segmentWriter, invoice);
+            segmentWriter.flush();
+            return buffer.toByteArray();
+          }
+        });
+        executor.execute(segment);
+        pending.add(segment);
+      }
+      while (!pending.isEmpty()) {
+        output.write(pending.removeFirst().get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while serializing invoices");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException("Cannot serialize invoice", e.getCause());
+    } finally {
+      for (FutureTask<byte[]> segment : pending) {
+        segment.cancel(true);
+      }
+    }
+    writeFooter(writer);
+  }
+
+  /**
+   * Returns the executor rendering the invoices in parallel when written to a stream, {@code null} if sequential.
+   * @return The executor rendering the invoices in parallel, {@code null} if sequential.
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Sets the executor rendering the invoices in parallel when written to a stream to the given value.
+   * The executor must not be bounded by the thread writing the builder, such as a fixed pool the write runs on,
+   * or the write may wait forever.
+   * @param executor Executor value to be set, {@code null} to render the invoices sequentially.
    */
-  public String toString() {
-    StringBuffer buffer = new StringBuffer();
-    buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-    buffer.append(String.format("<invoices version=\"%s\">", version));
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Splits the invoices of the builder into builders whose UTF-8 XMLi representation is at most the given length.
+   * The length of every invoice is measured by serializing it once without keeping its bytes.
+   * An invoice too large on its own gets a builder of its own.
+   * @param maxLength Maximum length in bytes of the XMLi representation of a builder.
+   * @return Builders sharing the invoices of the builder, in order.
+   */
+  public List<XMLiBuilder> split(int maxLength) {
+    List<XMLiBuilder> batches = new ArrayList<XMLiBuilder>();
+    try {
+      CountingOutputStream counter = new CountingOutputStream();
+      XMLiWriter writer = new XMLiWriter(counter);
+      new XMLiBuilder().write(writer);
+      writer.flush();
+      long overhead = counter.count;
+      XMLiBuilder batch = null;
+      long length = 0;
+      for (Invoice invoice : getChildren()) {
+        counter.count = 0;
+        writeInvoice(writer, invoice);
+        writer.flush();
+        if (batch == null || length + counter.count > maxLength) {
+          batch = new XMLiBuilder();
+          batch.setExecutor(executor);
+          batches.add(batch);
+          length = overhead;
+        }
+        batch.addChild(invoice);
+        length += counter.count;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot measure invoices", e);
+    }
+    return batches;
+  }
+
+  /**
+   * Writes the XMLi representation of the builder with the given writer.
+   */
+  @Override
+  void write(XMLiWriter writer) throws IOException {
+    writeHeader(writer);
     for (Invoice invoice : getChildren()) {
-      buffer.append("<invoice>");
-      buffer.append(invoice.toString());
-      buffer.append("</invoice>");
+      writeInvoice(writer, invoice);
+    }
+    writeFooter(writer);
+  }
+
+  private static void writeHeader(XMLiWriter writer) throws IOException {
+    writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    writer.append("<invoices version=\"" + version + "\">");
+  }
+
+  private static void writeInvoice(XMLiWriter writer, Invoice invoice) throws IOException {
+    writer.append("<invoice>");
+    invoice.write(writer);
+    writer.append("</invoice>");
+  }
+
+  private static void writeFooter(XMLiWriter writer) throws IOException {
+    writer.append("</invoices>");
+  }
+
+  /**
+   * Represents a byte stream discarding its bytes and only keeping count of them.
+   */
+  private static class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+      count += length;
     }
-    buffer.append("</invoices>");
-    return buffer.toString();
   }
 }
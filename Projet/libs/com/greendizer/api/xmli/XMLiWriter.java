@@ -0,0 +1,105 @@
+package com.greendizer.api.xmli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+
+/**
+ * Represents a writer serializing XMLi elements straight to a character or UTF-8 byte stream,
+ * without building the whole document in memory.
+ */
+public class XMLiWriter {
+
+  private static final Charset encoding = Charset.forName("UTF-8");
+  private final Writer output;
+
+  /**
+   * Creates a writer encoding the XMLi in UTF-8 to the given byte stream.
+   * @param output Byte stream to write to.
+   */
+  public XMLiWriter(OutputStream output) {
+    this(new OutputStreamWriter(output, encoding));
+  }
+
+  /**
+   * Creates a writer writing the XMLi to the given character stream.
+   * @param output Character stream to write to.
+   */
+  public XMLiWriter(Writer output) {
+    this.output = output instanceof BufferedWriter || output instanceof StringWriter ? output : new BufferedWriter(output);
+  }
+
+  /**
+   * Writes the whole XMLi document of the given builder.
+   * @param builder XMLiBuilder to be written.
+   * @throws IOException If the output cannot be written.
+   */
+  public void write(XMLiBuilder builder) throws IOException {
+    builder.write(this);
+  }
+
+  /**
+   * Writes the given raw markup.
+   * @param markup Markup to be written.
+   * @throws IOException If the output cannot be written.
+   */
+  void append(String markup) throws IOException {
+    output.write(markup);
+  }
+
+  /**
+   * Writes an element with the given tag name and text value, left empty if the value is {@code null}.
+   * @param tagName Element tag name.
+   * @param value Element text value.
+   * @throws IOException If the output cannot be written.
+   */
+  void element(String tagName, Object value) throws IOException {
+    output.write('<');
+    output.write(tagName);
+    output.write('>');
+    if (value != null) {
+      output.write(value.toString());
+    }
+    output.write("</");
+    output.write(tagName);
+    output.write('>');
+  }
+
+  /**
+   * Writes an attribute with the given name and value, nothing at all if the value is {@code null}.
+   * @param name Attribute name.
+   * @param value Attribute value.
+   * @throws IOException If the output cannot be written.
+   */
+  void attribute(String name, Object value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    output.write(' ');
+    output.write(name);
+    output.write("=\"");
+    output.write(value.toString());
+    output.write('"');
+  }
+
+  /**
+   * Flushes the buffered output down to the underlying stream.
+   * @throws IOException If the output cannot be written.
+   */
+  public void flush() throws IOException {
+    output.flush();
+  }
+
+  /**
+   * Flushes and closes the underlying stream.
+   * @throws IOException If the output cannot be closed.
+   */
+  public void close() throws IOException {
+    output.close();
+  }
+}